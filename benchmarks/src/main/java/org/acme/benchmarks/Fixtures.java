@@ -0,0 +1,61 @@
+package org.acme.benchmarks;
+
+/**
+ * This class builds the payloads used by the benchmarks.
+ * Each payload repeats a realistic record until it reaches the requested size, so the same shape can be measured
+ * from 1 KB to several MB.
+ */
+public final class Fixtures {
+
+    private static final String CARD_HEADER =
+        "{\"card\":{\"number\":\"4111111111111111\",\"holder\":\"MARIA FERNANDA LOPEZ\",\"expiry\":\"12/27\","
+            + "\"brand\":\"VISA\",\"status\":\"ACTIVE\"},\"channel\":\"POS\",\"movements\":[";
+    private static final String CARD_MOVEMENT =
+        "{\"id\":\"%08d\",\"date\":\"2024-05-14T10:32:11\",\"merchant\":\"SUPERMERCADO LA 14\","
+            + "\"city\":\"CALI\",\"amount\":\"125400.00\",\"currency\":\"COP\",\"authorization\":\"A%06d\"}";
+    private static final String CARD_FOOTER = "]}";
+
+    private static final String RECAUDADORA_HEADER =
+        "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\" "
+            + "xmlns:rec=\"http://www.example.org/bbvaMaquinaRecaudadora\">"
+            + "<soapenv:Header/><soapenv:Body><rec:CierresDeCaja>";
+    private static final String RECAUDADORA_RECORD =
+        "<CierreDeCaja><idMaquina>MQ-%06d</idMaquina><codigoConvenio>7701</codigoConvenio>"
+            + "<Fecha>2024-05-14</Fecha><valorTotal>1850000.00</valorTotal></CierreDeCaja>";
+    private static final String RECAUDADORA_FOOTER = "</rec:CierresDeCaja></soapenv:Body></soapenv:Envelope>";
+
+    private Fixtures() {
+    }
+
+    /**
+     * Builds a card JSON request of at least the given size.
+     * @param size The minimum size of the payload in bytes.
+     * @return The JSON payload.
+     */
+    public static String cardJson(int size) {
+        StringBuilder json = new StringBuilder(size + 256).append(CARD_HEADER);
+        int record = 0;
+        do {
+            if (record > 0) {
+                json.append(',');
+            }
+            json.append(String.format(CARD_MOVEMENT, record, record));
+            record++;
+        } while (json.length() + CARD_FOOTER.length() < size);
+        return json.append(CARD_FOOTER).toString();
+    }
+
+    /**
+     * Builds a recaudadora SOAP request of at least the given size.
+     * @param size The minimum size of the payload in bytes.
+     * @return The SOAP envelope.
+     */
+    public static String recaudadoraEnvelope(int size) {
+        StringBuilder xml = new StringBuilder(size + 256).append(RECAUDADORA_HEADER);
+        int record = 0;
+        do {
+            xml.append(String.format(RECAUDADORA_RECORD, record++));
+        } while (xml.length() + RECAUDADORA_FOOTER.length() < size);
+        return xml.append(RECAUDADORA_FOOTER).toString();
+    }
+}
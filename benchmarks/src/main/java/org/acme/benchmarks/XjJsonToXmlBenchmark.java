@@ -0,0 +1,63 @@
+package org.acme.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.camel.CamelContext;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the xj:identity?transformDirection=JSON2XML step used by the direct:toXml route of BaseCamelRoute.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XjJsonToXmlBenchmark {
+
+    @Param({"1024", "65536", "1048576", "5242880"})
+    public int payloadSize;
+
+    private CamelContext camelContext;
+    private ProducerTemplate producerTemplate;
+    private String json;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        camelContext = new DefaultCamelContext();
+        camelContext.addRoutes(new RouteBuilder() {
+            @Override
+            public void configure() {
+                from("direct:toXml").to("xj:identity?transformDirection=JSON2XML");
+            }
+        });
+        camelContext.start();
+        producerTemplate = camelContext.createProducerTemplate();
+        json = Fixtures.cardJson(payloadSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        camelContext.stop();
+    }
+
+    @Benchmark
+    public String jsonToXml() {
+        return producerTemplate.requestBody("direct:toXml", json, String.class);
+    }
+}
@@ -0,0 +1,67 @@
+package org.acme.configurations;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
+import org.acme.benchmarks.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the conversion of a card JSON request to XML done by CardXmlProcess.
+ * The DOM path (convertJsonToXml and jsonNodeToXml) is compared with the streaming path (writeJsonAsXml).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CardXmlProcessBenchmark {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    @Param({"1024", "65536", "1048576", "5242880"})
+    public int payloadSize;
+
+    private CardXmlProcess cardXmlProcess;
+    private String json;
+    private byte[] jsonBytes;
+
+    @Setup
+    public void setUp() {
+        cardXmlProcess = new CardXmlProcess("/xslt/recaudadora.xslt");
+        json = Fixtures.cardJson(payloadSize);
+        jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String dom() throws Exception {
+        return cardXmlProcess.convertJsonToXml(json);
+    }
+
+    @Benchmark
+    public int streaming() throws Exception {
+        ByteArrayOutputStream xmlOutput = new ByteArrayOutputStream(jsonBytes.length);
+        try (JsonParser parser = JSON_FACTORY.createParser(jsonBytes)) {
+            XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(xmlOutput, "UTF-8");
+            cardXmlProcess.writeJsonAsXml(parser, writer);
+            writer.close();
+        }
+        return xmlOutput.size();
+    }
+}
@@ -0,0 +1,34 @@
+package org.acme.service;
+
+import java.util.concurrent.TimeUnit;
+import org.acme.DTOs.Net;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures UrlParser.parseUrl with the address of a legacy SOAP backend.
+ * parseUrl logs the components it finds at FINE level, which is disabled by default, so the measurement does not
+ * include console output; enabling FINE for org.acme.service.UrlParser adds the cost of logging.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UrlParserBenchmark {
+
+    private final UrlParser urlParser = new UrlParser();
+
+    @Benchmark
+    public Net parseUrl() {
+        return urlParser.parseUrl("http://localhost:9080/BBVA_PROCWeb/sca/EntradaProcesoExport1");
+    }
+}
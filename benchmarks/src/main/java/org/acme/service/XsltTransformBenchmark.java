@@ -0,0 +1,89 @@
+package org.acme.service;
+
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import org.acme.benchmarks.Fixtures;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the application of recaudadora.xslt to a recaudadora SOAP request.
+ * The stylesheet compiled once by XsltTemplateCache is compared with compiling it for every message.
+ * XsltTemplateCache reads src/main/resources/xslt, so the benchmarks must be run from the root of the repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XsltTransformBenchmark {
+
+    private static final String SERVICE = "recaudadora";
+    private static final File XSLT_FILE = new File("src/main/resources/xslt/recaudadora.xslt");
+
+    @Param({"1024", "65536", "1048576", "5242880"})
+    public int payloadSize;
+
+    private CamelContext camelContext;
+    private XsltTemplateCache templateCache;
+    private TransformerFactory transformerFactory;
+    private String envelope;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        camelContext = new DefaultCamelContext();
+        camelContext.start();
+        templateCache = new XsltTemplateCache();
+        // An empty artifact store, so the bundled stylesheet is used
+        ArtifactRepository artifactRepository = new ArtifactRepository();
+        artifactRepository.storeType = "local";
+        artifactRepository.directory = Files.createTempDirectory("artifacts").toString();
+        templateCache.artifactRepository = artifactRepository;
+        templateCache.getTemplates(SERVICE);
+        transformerFactory = TransformerFactory.newInstance();
+        envelope = Fixtures.recaudadoraEnvelope(payloadSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        camelContext.stop();
+    }
+
+    @Benchmark
+    public Object cachedTemplates() throws Exception {
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getIn().setBody(envelope);
+        templateCache.transform(SERVICE, exchange);
+        return exchange.getIn().getBody();
+    }
+
+    @Benchmark
+    public String compilePerMessage() throws Exception {
+        StringWriter writer = new StringWriter();
+        transformerFactory.newTransformer(new StreamSource(XSLT_FILE))
+            .transform(new StreamSource(new StringReader(envelope)), new StreamResult(writer));
+        return writer.toString();
+    }
+}
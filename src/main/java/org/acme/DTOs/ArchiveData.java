@@ -0,0 +1,13 @@
+package org.acme.DTOs;
+
+import jakarta.ws.rs.FormParam;
+import java.io.InputStream;
+import lombok.Data;
+
+@Data
+public class ArchiveData {
+  @FormParam("archiveFile")
+  private InputStream archiveFile;
+  @FormParam("sha256")
+  private String sha256;
+}
@@ -0,0 +1,17 @@
+package org.acme.DTOs;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ArtifactVersion {
+    private String kind;
+    private String nameService;
+    private int version;
+    private String hash;
+    private long size;
+    private long createdAt;
+}
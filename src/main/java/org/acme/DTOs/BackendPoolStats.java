@@ -0,0 +1,18 @@
+package org.acme.DTOs;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BackendPoolStats {
+    private String backend;
+    private List<String> services;
+    private int maxConnections;
+    private int inFlight;
+    private int peakInFlight;
+    private long requests;
+}
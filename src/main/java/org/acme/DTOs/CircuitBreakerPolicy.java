@@ -0,0 +1,20 @@
+package org.acme.DTOs;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CircuitBreakerPolicy {
+    private Boolean enabled;
+    private Integer failureRateThreshold;
+    private Long slowCallDuration;
+    private Integer slowCallRateThreshold;
+    private Integer slidingWindowSize;
+    private Integer minimumCalls;
+    private Long openStateDuration;
+    private Integer halfOpenCalls;
+    private Integer maxConcurrentCalls;
+}
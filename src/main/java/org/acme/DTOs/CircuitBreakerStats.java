@@ -0,0 +1,19 @@
+package org.acme.DTOs;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CircuitBreakerStats {
+    private String nameService;
+    private String state;
+    private double failureRate;
+    private double slowCallRate;
+    private int bufferedCalls;
+    private int concurrentCalls;
+    private int maxConcurrentCalls;
+    private long rejectedCalls;
+}
@@ -0,0 +1,15 @@
+package org.acme.DTOs;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CompressionPolicy {
+    private Boolean acceptCompressedRequests;
+    private Boolean compressResponses;
+    private Integer threshold;
+    private Boolean compressBackend;
+}
@@ -0,0 +1,21 @@
+package org.acme.DTOs;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CompressionStats {
+    private String nameService;
+    private long requestBytes;
+    private long requestWireBytes;
+    private long responseBytes;
+    private long responseWireBytes;
+    private long backendRequestBytes;
+    private long backendRequestWireBytes;
+    private long backendResponseBytes;
+    private long backendResponseWireBytes;
+    private long savedBytes;
+}
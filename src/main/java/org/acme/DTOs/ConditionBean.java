@@ -2,13 +2,19 @@ package org.acme.DTOs;
 
 
 import jakarta.enterprise.context.ApplicationScoped;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class is used to store the condition to apply the transformation or not.
+ * The condition is kept per route id, so changing it for one proxied service does not affect the others.
+ * Routes without an explicit value use the applyTransformation default.
  */
 
 @ApplicationScoped
-public class ConditionBean {    private boolean applyTransformation = false;
+public class ConditionBean {    private volatile boolean applyTransformation = false;
+
+    private final Map<String, Boolean> transformationByRoute = new ConcurrentHashMap<>();
 
     /**
      * This method is used to get the value of the applyTransformation flag.
@@ -20,6 +26,19 @@ public class ConditionBean {    private boolean applyTransformation = false;
         return applyTransformation;
     }
 
+    /**
+     * This method is used to get whether the transformation must be applied for a route.
+     * It is a lock-free lookup, so it can be evaluated for every exchange.
+     *
+     * @param routeId the id of the route
+     * @return the value for the route, or the applyTransformation default if none was set
+     */
+
+    public boolean isApplyTransformation(String routeId) {
+        Boolean value = transformationByRoute.get(routeId);
+        return value != null ? value : applyTransformation;
+    }
+
     /**
      * This method is used to set the value of the applyTransformation flag.
      *
@@ -30,4 +49,26 @@ public class ConditionBean {    private boolean applyTransformation = false;
         this.applyTransformation = applyTransformation;
     }
 
+    /**
+     * This method is used to set whether the transformation must be applied for a route.
+     * The change is seen by the next exchange without restarting the route.
+     *
+     * @param routeId             the id of the route
+     * @param applyTransformation the new value for the route
+     */
+
+    public void setApplyTransformation(String routeId, boolean applyTransformation) {
+        transformationByRoute.put(routeId, applyTransformation);
+    }
+
+    /**
+     * This method is used to forget the value of a route, for example when the route is deleted.
+     *
+     * @param routeId the id of the route
+     */
+
+    public void removeApplyTransformation(String routeId) {
+        transformationByRoute.remove(routeId);
+    }
+
 }
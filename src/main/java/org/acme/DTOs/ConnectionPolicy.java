@@ -0,0 +1,17 @@
+package org.acme.DTOs;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ConnectionPolicy {
+    private Long connectTimeout;
+    private Long receiveTimeout;
+    private Boolean keepAlive;
+    private Boolean allowChunking;
+    private Boolean asyncClient;
+    private Boolean asyncProxy;
+}
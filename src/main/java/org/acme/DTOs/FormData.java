@@ -14,4 +14,6 @@ public class FormData {
     private InputStream wsdlFile;
     @FormParam("wsdlDetail")
     private String wsdlDetail;
+    @FormParam("sha256")
+    private String sha256;
 }
@@ -13,4 +13,9 @@ public class ModifyDataHots {
   private String hostService;
   private String portService;
   private String pathService;
+  private ConnectionPolicy connectionPolicy;
+  private ResponseCachePolicy responseCache;
+  private CircuitBreakerPolicy circuitBreaker;
+  private Boolean singleFlight;
+  private CompressionPolicy compression;
 }
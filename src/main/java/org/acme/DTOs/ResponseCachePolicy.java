@@ -0,0 +1,15 @@
+package org.acme.DTOs;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResponseCachePolicy {
+    private Boolean enabled;
+    private Long ttlSeconds;
+    private List<String> operations;
+}
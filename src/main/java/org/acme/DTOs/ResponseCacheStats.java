@@ -0,0 +1,17 @@
+package org.acme.DTOs;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResponseCacheStats {
+    private String nameService;
+    private int entries;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+}
@@ -0,0 +1,14 @@
+package org.acme.DTOs;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RouteProvisionResult {
+    private String nameService;
+    private boolean success;
+    private String message;
+}
@@ -0,0 +1,16 @@
+package org.acme.DTOs;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SingleFlightStats {
+    private String nameService;
+    private int inFlight;
+    private long leaders;
+    private long coalesced;
+    private long timeouts;
+}
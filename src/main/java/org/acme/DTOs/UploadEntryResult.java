@@ -0,0 +1,18 @@
+package org.acme.DTOs;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadEntryResult {
+    private String fileName;
+    private String kind;
+    private String nameService;
+    private int version;
+    private String hash;
+    private boolean success;
+    private String message;
+}
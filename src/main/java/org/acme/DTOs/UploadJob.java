@@ -0,0 +1,22 @@
+package org.acme.DTOs;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadJob {
+    private String jobId;
+    private String status;
+    private String archiveSha256;
+    private int total;
+    private int succeeded;
+    private int failed;
+    private long createdAt;
+    private Long finishedAt;
+    private String error;
+    private List<UploadEntryResult> entries;
+}
@@ -0,0 +1,21 @@
+package org.acme.DTOs;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class WsdlDefinition {
+    private String nameService;
+    private String wsdlPath;
+    private String serviceName;
+    private String soap11Address;
+    private String soap12Address;
+    private String portType;
+    private String bindingStyle;
+    private String soapVersion;
+    private long lastModified;
+    private String hash;
+}
@@ -0,0 +1,15 @@
+package org.acme.DTOs;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class XsltCacheStats {
+    private int entries;
+    private long hits;
+    private long misses;
+    private long compileTimeMillis;
+}
@@ -10,4 +10,6 @@ public class XsltData {
   private InputStream xsltFile;
   @FormParam("xsltDetail")
   private String xsltDetail;
+  @FormParam("sha256")
+  private String sha256;
 }
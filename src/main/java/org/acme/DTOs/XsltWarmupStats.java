@@ -0,0 +1,20 @@
+package org.acme.DTOs;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class XsltWarmupStats {
+    private String nameService;
+    private String hash;
+    private long compileMillis;
+    private int samples;
+    private int iterations;
+    private long firstRunMicros;
+    private long averageRunMicros;
+    private long warmupMillis;
+    private long preparedAt;
+}
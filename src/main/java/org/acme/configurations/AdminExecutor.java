@@ -0,0 +1,69 @@
+package org.acme.configurations;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.unchecked.Unchecked;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.java.Log;
+
+/**
+ * This class runs the blocking work of the admin endpoints (route provisioning, file writes, Camel route changes)
+ * on its own bounded pool instead of the shared Quarkus worker pool.
+ * A provisioning storm can then only fill this pool and its queue, and is rejected once both are full,
+ * while the other endpoints keep their threads.
+ * This class is annotated with @ApplicationScoped, meaning a single instance will be created for the entire application.
+ */
+@ApplicationScoped
+@Log
+public class AdminExecutor {
+
+  int threads = Integer.parseInt(System.getenv().getOrDefault("ADMIN_THREADS", "8"));
+  int queueSize = Integer.parseInt(System.getenv().getOrDefault("ADMIN_QUEUE_SIZE", "100"));
+
+  private ThreadPoolExecutor executor;
+
+  /**
+   * This method creates the pool once the bean is built.
+   */
+  @PostConstruct
+  void init() {
+    AtomicInteger counter = new AtomicInteger();
+    executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(queueSize),
+        runnable -> {
+          Thread thread = new Thread(runnable, "admin-worker-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy());
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * This method stops the pool when the application stops.
+   */
+  @PreDestroy
+  void close() {
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * This method runs a blocking action on the admin pool.
+   * If the pool and its queue are full, the Uni fails with a RejectedExecutionException.
+   *
+   * @param action the blocking action
+   * @return a Uni with the result of the action
+   */
+  public <T> Uni<T> submit(Callable<T> action) {
+    return Uni.createFrom().item(Unchecked.supplier(action::call))
+        .runSubscriptionOn(executor);
+  }
+}
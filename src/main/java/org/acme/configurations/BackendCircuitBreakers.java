@@ -0,0 +1,404 @@
+package org.acme.configurations;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.java.Log;
+import org.acme.DTOs.CircuitBreakerPolicy;
+import org.acme.DTOs.CircuitBreakerStats;
+import org.acme.service.SoapRequestDigest;
+import org.apache.camel.Exchange;
+import org.apache.camel.support.SynchronizationAdapter;
+import org.bson.Document;
+
+/**
+ * This class is responsible for isolating the proxy routes from slow or failing SOAP backends.
+ * Each service has a circuit breaker over its last backend calls and a bulkhead that limits its concurrent calls.
+ * A call fails when its exchange fails or when the backend answers with an HTTP 5xx status or a SOAP fault,
+ * which do not fail the exchange with dataFormat=MESSAGE.
+ * When the failure rate or the slow call rate of the window reaches its threshold the circuit opens, and the calls are
+ * answered at once with a SOAP fault instead of holding a CXF consumer thread until the backend times out.
+ * After the open state duration a few probe calls are let through, and the circuit closes again if all of them succeed.
+ * The settings come from the CircuitBreakerPolicy stored with the service in Mongo.
+ * This class is annotated with @ApplicationScoped, meaning a single instance will be created for the entire application.
+ */
+@ApplicationScoped
+@Log
+public class BackendCircuitBreakers {
+
+  private static final String REJECTION_PROPERTY = "proxyBackendRejection";
+  private static final String BACKEND_FAILURE_PROPERTY = "proxyBackendFailure";
+  private static final String BACKEND_CALL_PROPERTY = "proxyBackendCall";
+
+  boolean enabled = Boolean.parseBoolean(System.getenv().getOrDefault("CIRCUIT_BREAKER_ENABLED", "true"));
+  int failureRateThreshold = Integer.parseInt(System.getenv().getOrDefault("CIRCUIT_FAILURE_RATE", "50"));
+  long slowCallDuration = Long.parseLong(System.getenv().getOrDefault("CIRCUIT_SLOW_CALL_DURATION", "10000"));
+  int slowCallRateThreshold = Integer.parseInt(System.getenv().getOrDefault("CIRCUIT_SLOW_CALL_RATE", "80"));
+  int slidingWindowSize = Integer.parseInt(System.getenv().getOrDefault("CIRCUIT_WINDOW_SIZE", "20"));
+  int minimumCalls = Integer.parseInt(System.getenv().getOrDefault("CIRCUIT_MINIMUM_CALLS", "10"));
+  long openStateDuration = Long.parseLong(System.getenv().getOrDefault("CIRCUIT_OPEN_DURATION", "30000"));
+  int halfOpenCalls = Integer.parseInt(System.getenv().getOrDefault("CIRCUIT_HALF_OPEN_CALLS", "3"));
+  int maxConcurrentCalls = Integer.parseInt(System.getenv().getOrDefault("BULKHEAD_MAX_CONCURRENT_CALLS", "50"));
+
+  private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+  /**
+   * This method returns the policy of a service, filling the values it does not set with the defaults.
+   *
+   * @param requested the policy sent in the request, may be null
+   * @param stored    the service document stored in Mongo, may be empty
+   * @return the complete policy
+   */
+  public CircuitBreakerPolicy resolve(CircuitBreakerPolicy requested, Optional<Document> stored) {
+    CircuitBreakerPolicy policy = requested != null
+        ? requested
+        : stored.map(document -> fromDocument(document.get("circuitBreaker", Document.class))).orElse(null);
+    if (policy == null) {
+      policy = new CircuitBreakerPolicy();
+    }
+    return new CircuitBreakerPolicy(
+        policy.getEnabled() != null ? policy.getEnabled() : enabled,
+        policy.getFailureRateThreshold() != null ? policy.getFailureRateThreshold() : failureRateThreshold,
+        policy.getSlowCallDuration() != null ? policy.getSlowCallDuration() : slowCallDuration,
+        policy.getSlowCallRateThreshold() != null ? policy.getSlowCallRateThreshold() : slowCallRateThreshold,
+        policy.getSlidingWindowSize() != null ? policy.getSlidingWindowSize() : slidingWindowSize,
+        policy.getMinimumCalls() != null ? policy.getMinimumCalls() : minimumCalls,
+        policy.getOpenStateDuration() != null ? policy.getOpenStateDuration() : openStateDuration,
+        policy.getHalfOpenCalls() != null ? policy.getHalfOpenCalls() : halfOpenCalls,
+        policy.getMaxConcurrentCalls() != null ? policy.getMaxConcurrentCalls() : maxConcurrentCalls);
+  }
+
+  /**
+   * This method converts a policy into the sub-document stored with the service in Mongo.
+   *
+   * @param policy the policy, may be null
+   * @return the document, or null if the policy is null
+   */
+  public static Document toDocument(CircuitBreakerPolicy policy) {
+    if (policy == null) {
+      return null;
+    }
+    return new Document()
+        .append("enabled", policy.getEnabled())
+        .append("failureRateThreshold", policy.getFailureRateThreshold())
+        .append("slowCallDuration", policy.getSlowCallDuration())
+        .append("slowCallRateThreshold", policy.getSlowCallRateThreshold())
+        .append("slidingWindowSize", policy.getSlidingWindowSize())
+        .append("minimumCalls", policy.getMinimumCalls())
+        .append("openStateDuration", policy.getOpenStateDuration())
+        .append("halfOpenCalls", policy.getHalfOpenCalls())
+        .append("maxConcurrentCalls", policy.getMaxConcurrentCalls());
+  }
+
+  /**
+   * This method reads a policy from the sub-document stored with the service in Mongo.
+   *
+   * @param document the document, may be null
+   * @return the policy, or null if the document is null
+   */
+  public static CircuitBreakerPolicy fromDocument(Document document) {
+    if (document == null) {
+      return null;
+    }
+    return new CircuitBreakerPolicy(
+        document.getBoolean("enabled"),
+        document.getInteger("failureRateThreshold"),
+        longValue(document, "slowCallDuration"),
+        document.getInteger("slowCallRateThreshold"),
+        document.getInteger("slidingWindowSize"),
+        document.getInteger("minimumCalls"),
+        longValue(document, "openStateDuration"),
+        document.getInteger("halfOpenCalls"),
+        document.getInteger("maxConcurrentCalls"));
+  }
+
+  /**
+   * This method creates the circuit breaker of a service with its policy, replacing the previous one.
+   * The route version that is still draining keeps the breaker it was built with.
+   *
+   * @param nameService the name of the service
+   * @param policy      the complete policy of the service
+   * @return the circuit breaker of the service
+   */
+  public CircuitBreaker register(String nameService, CircuitBreakerPolicy policy) {
+    CircuitBreaker breaker = new CircuitBreaker(nameService, policy != null ? policy : resolve(null, Optional.empty()));
+    breakers.put(nameService, breaker);
+    return breaker;
+  }
+
+  /**
+   * This method removes the circuit breaker of a service, for example when its routes are deleted.
+   *
+   * @param nameService the name of the service
+   */
+  public void release(String nameService) {
+    breakers.remove(nameService);
+  }
+
+  /**
+   * This method returns the state of the circuit breaker and the bulkhead of each service.
+   *
+   * @return the statistics of each service
+   */
+  public List<CircuitBreakerStats> getStats() {
+    List<CircuitBreakerStats> stats = new ArrayList<>();
+    breakers.values().forEach(breaker -> stats.add(breaker.stats()));
+    return stats;
+  }
+
+  /**
+   * This method returns whether the backend call of an exchange was counted as failed by inspect, because the backend
+   * answered with an HTTP 5xx status or a SOAP fault.
+   *
+   * @param exchange the exchange returned by the backend
+   * @return true if the call failed
+   */
+  public static boolean isBackendFailure(Exchange exchange) {
+    return exchange.getProperty(BACKEND_FAILURE_PROPERTY, false, Boolean.class);
+  }
+
+  private static Long longValue(Document document, String key) {
+    Number value = document.get(key, Number.class);
+    return value != null ? value.longValue() : null;
+  }
+
+  /**
+   * The states of a circuit breaker.
+   */
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  /**
+   * This class holds the circuit breaker and the bulkhead of one service.
+   */
+  public static final class CircuitBreaker {
+    private final String nameService;
+    private final CircuitBreakerPolicy policy;
+    private final Semaphore bulkhead;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong rejectedCalls = new AtomicLong();
+
+    // Outcomes of the last calls in a ring buffer: 1 = failed, 2 = slow
+    private final byte[] window;
+    private int windowIndex;
+    private int bufferedCalls;
+    private int failedCalls;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenStarted;
+    private int halfOpenSucceeded;
+
+    private CircuitBreaker(String nameService, CircuitBreakerPolicy policy) {
+      this.nameService = nameService;
+      this.policy = policy;
+      this.bulkhead = new Semaphore(policy.getMaxConcurrentCalls());
+      this.window = new byte[Math.max(1, policy.getSlidingWindowSize())];
+    }
+
+    /**
+     * This method asks for permission to call the backend.
+     * When it is granted, inspect releases the bulkhead permit and records the outcome and the duration of the call
+     * right after the backend answers, so the XSLT, compression and writing of the response are not counted. If the
+     * backend step fails and inspect is never reached, they are recorded when the exchange completes instead.
+     * When it is refused, the reason is kept in the exchange for reject.
+     *
+     * @param exchange the exchange about to be sent to the backend
+     * @return true if the backend can be called
+     */
+    public boolean tryAcquire(Exchange exchange) {
+      if (!policy.getEnabled()) {
+        return true;
+      }
+      if (!bulkhead.tryAcquire()) {
+        rejectedCalls.incrementAndGet();
+        exchange.setProperty(REJECTION_PROPERTY, "se alcanzó el máximo de " + policy.getMaxConcurrentCalls()
+            + " llamadas simultáneas");
+        return false;
+      }
+      if (!permitCall()) {
+        bulkhead.release();
+        rejectedCalls.incrementAndGet();
+        exchange.setProperty(REJECTION_PROPERTY, "el circuito está abierto");
+        return false;
+      }
+
+      BackendCall call = new BackendCall();
+      exchange.setProperty(BACKEND_CALL_PROPERTY, call);
+      exchange.getExchangeExtension().addOnCompletion(new SynchronizationAdapter() {
+        @Override
+        public void onDone(Exchange exchange) {
+          finish(call, exchange.isFailed() || isBackendFailure(exchange));
+        }
+      });
+      return true;
+    }
+
+    /**
+     * This method checks the response of an exchange sent to the backend, and counts the call as failed when the
+     * status is HTTP 5xx or the body is a SOAP fault. The body is read as bytes and handed back to the consumer.
+     * It then releases the bulkhead permit and records the call.
+     *
+     * @param exchange the exchange returned by the backend
+     */
+    public void inspect(Exchange exchange) {
+      BackendCall call = exchange.getProperty(BACKEND_CALL_PROPERTY, BackendCall.class);
+      if (!policy.getEnabled() || call == null) {
+        return;
+      }
+      Integer responseCode = exchange.getMessage().getHeader(Exchange.HTTP_RESPONSE_CODE, Integer.class);
+      boolean failed = responseCode != null && responseCode >= 500;
+      if (!failed) {
+        byte[] response = exchange.getMessage().getBody(byte[].class);
+        if (response != null) {
+          exchange.getMessage().setBody(response);
+          failed = SoapRequestDigest.isFault(new String(response, StandardCharsets.UTF_8));
+        }
+      }
+      if (failed) {
+        exchange.setProperty(BACKEND_FAILURE_PROPERTY, true);
+      }
+      finish(call, failed || exchange.isFailed());
+    }
+
+    /**
+     * Releases the permit of a call and records it, once, whether inspect or the completion of the exchange
+     * gets there first.
+     */
+    private void finish(BackendCall call, boolean failed) {
+      if (call.finished.compareAndSet(false, true)) {
+        bulkhead.release();
+        record((System.nanoTime() - call.start) / 1_000_000, failed);
+      }
+    }
+
+    /**
+     * This method answers a refused exchange with a SOAP fault, without calling the backend.
+     *
+     * @param exchange the exchange refused by tryAcquire
+     */
+    public void reject(Exchange exchange) {
+      String reason = exchange.getProperty(REJECTION_PROPERTY, "el backend no está disponible", String.class);
+      log.warning("Llamada al backend de " + nameService + " rechazada: " + reason);
+      exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, 500);
+      exchange.getMessage().setBody(
+          "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body><soap:Fault>"
+              + "<faultcode>soap:Server</faultcode>"
+              + "<faultstring>Servicio " + nameService + " no disponible: " + reason + "</faultstring>"
+              + "</soap:Fault></soap:Body></soap:Envelope>");
+    }
+
+    /**
+     * A backend call granted by tryAcquire.
+     */
+    private static final class BackendCall {
+      private final long start = System.nanoTime();
+      private final AtomicBoolean finished = new AtomicBoolean();
+    }
+
+    private boolean permitCall() {
+      lock.lock();
+      try {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= policy.getOpenStateDuration()) {
+          state = State.HALF_OPEN;
+          halfOpenStarted = 0;
+          halfOpenSucceeded = 0;
+          log.info("Circuito de " + nameService + " semiabierto");
+        }
+        if (state == State.CLOSED) {
+          return true;
+        }
+        if (state == State.HALF_OPEN && halfOpenStarted < policy.getHalfOpenCalls()) {
+          halfOpenStarted++;
+          return true;
+        }
+        return false;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void record(long durationMillis, boolean failed) {
+      boolean slow = durationMillis >= policy.getSlowCallDuration();
+      lock.lock();
+      try {
+        if (state == State.HALF_OPEN) {
+          if (failed || slow) {
+            open("falló una llamada de prueba");
+          } else if (++halfOpenSucceeded >= policy.getHalfOpenCalls()) {
+            close();
+          }
+        } else if (state == State.CLOSED) {
+          add((byte) ((failed ? 1 : 0) | (slow ? 2 : 0)));
+          if (bufferedCalls >= policy.getMinimumCalls()) {
+            if (failureRate() >= policy.getFailureRateThreshold()) {
+              open("tasa de fallos de " + failureRate() + "%");
+            } else if (slowCallRate() >= policy.getSlowCallRateThreshold()) {
+              open("tasa de llamadas lentas de " + slowCallRate() + "%");
+            }
+          }
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void add(byte outcome) {
+      if (bufferedCalls == window.length) {
+        byte oldest = window[windowIndex];
+        failedCalls -= oldest & 1;
+        slowCalls -= (oldest >> 1) & 1;
+      } else {
+        bufferedCalls++;
+      }
+      window[windowIndex] = outcome;
+      failedCalls += outcome & 1;
+      slowCalls += (outcome >> 1) & 1;
+      windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void open(String reason) {
+      state = State.OPEN;
+      openedAt = System.currentTimeMillis();
+      log.warning("Circuito de " + nameService + " abierto: " + reason);
+    }
+
+    private void close() {
+      state = State.CLOSED;
+      windowIndex = 0;
+      bufferedCalls = 0;
+      failedCalls = 0;
+      slowCalls = 0;
+      log.info("Circuito de " + nameService + " cerrado");
+    }
+
+    private double failureRate() {
+      return bufferedCalls == 0 ? 0 : failedCalls * 100.0 / bufferedCalls;
+    }
+
+    private double slowCallRate() {
+      return bufferedCalls == 0 ? 0 : slowCalls * 100.0 / bufferedCalls;
+    }
+
+    private CircuitBreakerStats stats() {
+      lock.lock();
+      try {
+        return new CircuitBreakerStats(nameService, state.name(), failureRate(), slowCallRate(), bufferedCalls,
+            policy.getMaxConcurrentCalls() - bulkhead.availablePermits(), policy.getMaxConcurrentCalls(),
+            rejectedCalls.get());
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
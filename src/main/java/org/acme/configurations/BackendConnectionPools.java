@@ -0,0 +1,262 @@
+package org.acme.configurations;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.java.Log;
+import org.acme.DTOs.BackendPoolStats;
+import org.acme.DTOs.ConnectionPolicy;
+import org.apache.camel.Exchange;
+import org.apache.camel.component.cxf.jaxws.CxfConfigurer;
+import org.apache.camel.support.SynchronizationAdapter;
+import org.apache.cxf.Bus;
+import org.apache.cxf.endpoint.Client;
+import org.apache.cxf.endpoint.Server;
+import org.apache.cxf.frontend.AbstractWSDLBasedEndpointFactory;
+import org.apache.cxf.transport.http.HTTPConduit;
+import org.apache.cxf.transports.http.configuration.ConnectionType;
+import org.apache.cxf.transports.http.configuration.HTTPClientPolicy;
+import org.bson.Document;
+
+/**
+ * This class is responsible for the outbound connections from the proxy routes to the SOAP backends.
+ * The backend calls go through the asynchronous HttpClient 5 conduit of CXF, whose connection pool is shared by the
+ * whole bus, so every route to the same host:port reuses the same pooled keep-alive connections.
+ * Timeouts, keep-alive and chunking are applied per service from the ConnectionPolicy stored with the service in Mongo.
+ * With asyncProxy the route of the service is also routed asynchronously, so no thread is held while the backend answers.
+ * This class is annotated with @ApplicationScoped, meaning a single instance will be created for the entire application.
+ */
+@ApplicationScoped
+@Log
+public class BackendConnectionPools {
+
+  // Bus properties read by the HttpClient 5 conduit factory when it creates the shared pool
+  private static final String MAX_CONNECTIONS = "org.apache.cxf.transport.http.async.MAX_CONNECTIONS";
+  private static final String MAX_PER_HOST_CONNECTIONS = "org.apache.cxf.transport.http.async.MAX_PER_HOST_CONNECTIONS";
+  private static final String CONNECTION_TTL = "org.apache.cxf.transport.http.async.CONNECTION_TTL";
+  private static final String USE_ASYNC = "use.async.http.conduit";
+
+  int maxConnections = Integer.parseInt(System.getenv().getOrDefault("BACKEND_MAX_CONNECTIONS", "200"));
+  int maxPerHostConnections = Integer.parseInt(System.getenv().getOrDefault("BACKEND_MAX_PER_HOST_CONNECTIONS", "20"));
+  long connectionTtl = Long.parseLong(System.getenv().getOrDefault("BACKEND_CONNECTION_TTL", "60000"));
+  long connectTimeout = Long.parseLong(System.getenv().getOrDefault("BACKEND_CONNECT_TIMEOUT", "5000"));
+  long receiveTimeout = Long.parseLong(System.getenv().getOrDefault("BACKEND_RECEIVE_TIMEOUT", "30000"));
+  boolean keepAlive = Boolean.parseBoolean(System.getenv().getOrDefault("BACKEND_KEEP_ALIVE", "true"));
+  boolean allowChunking = Boolean.parseBoolean(System.getenv().getOrDefault("BACKEND_ALLOW_CHUNKING", "true"));
+  boolean asyncClient = Boolean.parseBoolean(System.getenv().getOrDefault("BACKEND_ASYNC_CLIENT", "true"));
+  boolean asyncProxy = Boolean.parseBoolean(System.getenv().getOrDefault("BACKEND_ASYNC_PROXY", "false"));
+
+  // Usage of the shared pool by host:port
+  private final Map<String, BackendPool> pools = new ConcurrentHashMap<>();
+
+  /**
+   * This method returns the policy of a service, filling the values it does not set with the defaults.
+   *
+   * @param requested the policy sent in the request, may be null
+   * @param stored    the service document stored in Mongo, may be empty
+   * @return the complete policy
+   */
+  public ConnectionPolicy resolve(ConnectionPolicy requested, Optional<Document> stored) {
+    ConnectionPolicy policy = requested != null
+        ? requested
+        : stored.map(document -> fromDocument(document.get("connectionPolicy", Document.class))).orElse(null);
+    if (policy == null) {
+      policy = new ConnectionPolicy();
+    }
+    return new ConnectionPolicy(
+        policy.getConnectTimeout() != null ? policy.getConnectTimeout() : connectTimeout,
+        policy.getReceiveTimeout() != null ? policy.getReceiveTimeout() : receiveTimeout,
+        policy.getKeepAlive() != null ? policy.getKeepAlive() : keepAlive,
+        policy.getAllowChunking() != null ? policy.getAllowChunking() : allowChunking,
+        policy.getAsyncClient() != null ? policy.getAsyncClient() : asyncClient,
+        policy.getAsyncProxy() != null ? policy.getAsyncProxy() : asyncProxy);
+  }
+
+  /**
+   * This method converts a policy into the sub-document stored with the service in Mongo.
+   *
+   * @param policy the policy, may be null
+   * @return the document, or null if the policy is null
+   */
+  public static Document toDocument(ConnectionPolicy policy) {
+    if (policy == null) {
+      return null;
+    }
+    return new Document()
+        .append("connectTimeout", policy.getConnectTimeout())
+        .append("receiveTimeout", policy.getReceiveTimeout())
+        .append("keepAlive", policy.getKeepAlive())
+        .append("allowChunking", policy.getAllowChunking())
+        .append("asyncClient", policy.getAsyncClient())
+        .append("asyncProxy", policy.getAsyncProxy());
+  }
+
+  /**
+   * This method reads a policy from the sub-document stored with the service in Mongo.
+   *
+   * @param document the document, may be null
+   * @return the policy, or null if the document is null
+   */
+  public static ConnectionPolicy fromDocument(Document document) {
+    if (document == null) {
+      return null;
+    }
+    return new ConnectionPolicy(
+        longValue(document, "connectTimeout"),
+        longValue(document, "receiveTimeout"),
+        document.getBoolean("keepAlive"),
+        document.getBoolean("allowChunking"),
+        document.getBoolean("asyncClient"),
+        document.getBoolean("asyncProxy"));
+  }
+
+  /**
+   * This method returns the CXF configurer that applies a policy to the client of a backend endpoint.
+   *
+   * @param policy the complete policy of the service
+   * @return the configurer
+   */
+  public CxfConfigurer configurer(ConnectionPolicy policy) {
+    return new CxfConfigurer() {
+      @Override
+      public void configure(AbstractWSDLBasedEndpointFactory factoryBean) {
+        configureBus(factoryBean.getBus());
+      }
+
+      @Override
+      public void configureClient(Client client) {
+        if (client.getConduit() instanceof HTTPConduit conduit) {
+          HTTPClientPolicy clientPolicy = new HTTPClientPolicy();
+          clientPolicy.setConnectionTimeout(policy.getConnectTimeout());
+          clientPolicy.setReceiveTimeout(policy.getReceiveTimeout());
+          clientPolicy.setConnection(policy.getKeepAlive() ? ConnectionType.KEEP_ALIVE : ConnectionType.CLOSE);
+          clientPolicy.setAllowChunking(policy.getAllowChunking());
+          conduit.setClient(clientPolicy);
+        }
+        // The asynchronous proxy mode needs the asynchronous conduit, otherwise a CXF thread waits for the response
+        client.getRequestContext().put(USE_ASYNC, policy.getAsyncClient() || policy.getAsyncProxy());
+      }
+
+      @Override
+      public void configureServer(Server server) {
+      }
+    };
+  }
+
+  /**
+   * This method returns how long a suspended exchange of the asynchronous proxy mode may wait for its backend.
+   *
+   * @param policy the complete policy of the service
+   * @return the connect timeout plus the receive timeout, in milliseconds
+   */
+  public static long continuationTimeout(ConnectionPolicy policy) {
+    return policy.getConnectTimeout() + policy.getReceiveTimeout();
+  }
+
+  /**
+   * This method assigns a service to the pool of its backend host:port.
+   * If the service was using another backend, it is removed from that pool first.
+   *
+   * @param nameService the name of the service
+   * @param host        the host of the backend
+   * @param port        the port of the backend
+   * @return the pool of the backend
+   */
+  public BackendPool register(String nameService, String host, String port) {
+    String backend = host + ":" + port;
+    pools.forEach((key, pool) -> {
+      if (!key.equals(backend)) {
+        pool.services.remove(nameService);
+      }
+    });
+    pools.values().removeIf(pool -> pool.services.isEmpty() && pool.inFlight.get() == 0);
+
+    BackendPool pool = pools.computeIfAbsent(backend, BackendPool::new);
+    pool.services.add(nameService);
+    return pool;
+  }
+
+  /**
+   * This method removes a service from the pool of its backend, for example when its routes are deleted.
+   *
+   * @param nameService the name of the service
+   */
+  public void release(String nameService) {
+    pools.values().forEach(pool -> pool.services.remove(nameService));
+    pools.values().removeIf(pool -> pool.services.isEmpty() && pool.inFlight.get() == 0);
+  }
+
+  /**
+   * This method returns the usage of the shared pool by backend.
+   *
+   * @return the statistics of each backend
+   */
+  public List<BackendPoolStats> getStats() {
+    List<BackendPoolStats> stats = new ArrayList<>();
+    pools.values().forEach(pool -> stats.add(new BackendPoolStats(
+        pool.backend,
+        new ArrayList<>(pool.services),
+        maxPerHostConnections,
+        pool.inFlight.get(),
+        pool.peakInFlight.get(),
+        pool.requests.sum())));
+    return stats;
+  }
+
+  private static Long longValue(Document document, String key) {
+    Number value = document.get(key, Number.class);
+    return value != null ? value.longValue() : null;
+  }
+
+  private void configureBus(Bus bus) {
+    if (bus == null) {
+      return;
+    }
+    setIfAbsent(bus, MAX_CONNECTIONS, String.valueOf(maxConnections));
+    setIfAbsent(bus, MAX_PER_HOST_CONNECTIONS, String.valueOf(maxPerHostConnections));
+    setIfAbsent(bus, CONNECTION_TTL, String.valueOf(connectionTtl));
+  }
+
+  private static void setIfAbsent(Bus bus, String name, String value) {
+    if (bus.getProperty(name) == null) {
+      bus.setProperty(name, value);
+    }
+  }
+
+  /**
+   * This class keeps the usage of the shared pool for one backend host:port.
+   */
+  public static final class BackendPool {
+    private final String backend;
+    private final Set<String> services = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+
+    private BackendPool(String backend) {
+      this.backend = backend;
+    }
+
+    /**
+     * This method counts a backend call that starts now and ends when the exchange completes.
+     *
+     * @param exchange the exchange sent to the backend
+     */
+    public void track(Exchange exchange) {
+      requests.increment();
+      peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      exchange.getExchangeExtension().addOnCompletion(new SynchronizationAdapter() {
+        @Override
+        public void onDone(Exchange exchange) {
+          inFlight.decrementAndGet();
+        }
+      });
+    }
+  }
+}
@@ -1,15 +1,22 @@
 package org.acme.configurations;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
+import org.apache.camel.converter.stream.CachedOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.*;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
@@ -22,8 +29,16 @@ import java.io.*;
  */
 public class CardXmlProcess implements Processor {
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+    private static final String ROOT_ELEMENT = "processCardXmlRequest";
+
     private static String XSLT_FILE_PATH;
 
+    // Streams the JSON tokens straight to XML events unless CARD_XML_STREAMING=false
+    private final boolean streaming =
+        Boolean.parseBoolean(System.getenv().getOrDefault("CARD_XML_STREAMING", "true"));
+
     /**
      * Constructor for the CardXmlProcess class.
      * @param xsltFilePath The path to the XSLT file.
@@ -36,11 +51,17 @@ public class CardXmlProcess implements Processor {
 
     /**
      * The process method is called when a message is sent to this processor in a Camel route.
+     * In streaming mode the body is converted without building a JSON tree or a DOM.
      * @param exchange The current exchange in the route.
      * @throws Exception If an error occurs during processing.
      */
     @Override
     public void process(Exchange exchange) throws Exception {
+        if (streaming) {
+            processStreaming(exchange);
+            return;
+        }
+
         // Obtener el JSON del cuerpo del intercambio
         String jsonInput = exchange.getIn().getBody(String.class);
 
@@ -54,13 +75,83 @@ public class CardXmlProcess implements Processor {
         exchange.getIn().setBody(xmlOutput);
     }
 
+    /**
+     * Converts the JSON body of the exchange to XML token by token.
+     * The XML is written to a CachedOutputStream, which spools to disk above the stream caching threshold,
+     * so memory stays roughly flat regardless of the payload size.
+     * @param exchange The current exchange in the route.
+     * @throws Exception If an error occurs during conversion.
+     */
+    private void processStreaming(Exchange exchange) throws Exception {
+        InputStream jsonInput = exchange.getIn().getBody(InputStream.class);
+        CachedOutputStream xmlOutput = new CachedOutputStream(exchange);
+
+        try (JsonParser parser = JSON_FACTORY.createParser(jsonInput)) {
+            XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(xmlOutput, "UTF-8");
+            writeJsonAsXml(parser, writer);
+            writer.close();
+        }
+
+        exchange.getIn().setBody(xmlOutput.newStreamCache());
+    }
+
+    /**
+     * Writes the JSON read from a parser as XML, wrapped in the processCardXmlRequest element.
+     * The mapping is the same as jsonNodeToXml: object keys become elements and array items repeat under the parent.
+     * No XML declaration is written.
+     * @param parser The parser positioned before the first JSON token.
+     * @param writer The writer that receives the XML events.
+     * @throws IOException If the JSON cannot be read.
+     * @throws XMLStreamException If the XML cannot be written.
+     */
+    void writeJsonAsXml(JsonParser parser, XMLStreamWriter writer) throws IOException, XMLStreamException {
+        writer.writeStartElement(ROOT_ELEMENT);
+        if (parser.nextToken() != null) {
+            writeJsonValue(parser, writer);
+        }
+        writer.writeEndElement();
+        writer.flush();
+    }
+
+    /**
+     * Recursively writes the JSON value at the current token of the parser as XML.
+     * As with setTextContent in jsonNodeToXml, only the last scalar of an array is kept as the parent's text.
+     * @param parser The parser positioned on the first token of the value.
+     * @param writer The writer that receives the XML events.
+     */
+    private void writeJsonValue(JsonParser parser, XMLStreamWriter writer) throws IOException, XMLStreamException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                writer.writeStartElement(parser.currentName());
+                parser.nextToken();
+                writeJsonValue(parser, writer);
+                writer.writeEndElement();
+            }
+        } else if (token == JsonToken.START_ARRAY) {
+            String text = null;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (parser.currentToken().isScalarValue()) {
+                    text = parser.getText();
+                } else {
+                    writeJsonValue(parser, writer);
+                }
+            }
+            if (text != null) {
+                writer.writeCharacters(text);
+            }
+        } else {
+            writer.writeCharacters(parser.getText());
+        }
+    }
+
     /**
      * Converts a JSON string to an XML string.
      * @param jsonInput The JSON string to convert.
      * @return The converted XML string.
      * @throws Exception If an error occurs during conversion.
      */
-    private String convertJsonToXml(String jsonInput) throws Exception {
+    String convertJsonToXml(String jsonInput) throws Exception {
         // Parsear el JSON
         ObjectMapper objectMapper = new ObjectMapper();
         JsonNode rootNode = objectMapper.readTree(jsonInput);
@@ -1,76 +1,107 @@
 package org.acme.configurations;
 
-import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
 import io.vertx.ext.consul.ConsulClientOptions;
 import io.vertx.ext.consul.ServiceOptions;
 import io.vertx.mutiny.core.Vertx;
 import io.vertx.mutiny.ext.consul.ConsulClient;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
-import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Arrays;
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import lombok.extern.java.Log;
 
 /**
- * This class is responsible for registering a service with Consul.
+ * This class is responsible for registering services with Consul.
  * Consul is a service that provides service discovery, configuration, and orchestration capabilities.
  * This class is annotated with @ApplicationScoped, meaning a single instance will be created for the entire application.
+ * It owns a single Consul client built on the Vert.x instance managed by Quarkus, so route changes do not
+ * create new event loops or connections.
  */
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
 @ApplicationScoped
+@Log
 public class ConsulRegistration {
 
   String setHostConsul= System.getenv().getOrDefault ("SET_HOST_CONSUL","localhost");
   String setHostAdressRegister = System.getenv().getOrDefault("SET_HOST_ADRESS_REGISTER", "localhost");
   int setPortConsul = Integer.parseInt(System.getenv().getOrDefault("SET_PORT_CONSUL", "8500"));
   int setPortAdressRegister = Integer.parseInt(System.getenv().getOrDefault("SET_PORT_ADRESS_REGISTER", "12505"));
+  int retryAttempts = Integer.parseInt(System.getenv().getOrDefault("CONSUL_RETRY_ATTEMPTS", "3"));
 
-  private String name;
-  private String id;
-  private String tags1;
-  private String tags2;
+  private static final Duration INITIAL_BACKOFF = Duration.ofMillis(200);
+  private static final Duration MAX_BACKOFF = Duration.ofSeconds(5);
+
+  @Inject
+  Vertx vertx;
+
+  private ConsulClient client;
+
+  // Pending operations by service id, so duplicate requests share the same call
+  private final Map<String, Uni<Void>> inFlight = new ConcurrentHashMap<>();
 
   /**
-   * This method is called at application startup.
-   * It creates a Consul client and registers a service with the provided name, id, and tags.
-   * If any of the required values are null, the method will return without doing anything.
-   *
-   * @param ev    the startup event, provided by the Quarkus runtime
-   * @param vertx the Vert.x instance, used to create the Consul client
+   * This method creates the Consul client once the bean is built.
    */
-  public void init(@Observes StartupEvent ev, Vertx vertx) {
-    // Verificar si los valores necesarios son nulos
-    if (name == null || id == null || tags1 == null || tags2 == null) {
-      // Si alguno de los valores es nulo, no proceder con la inicialización
-      return;
-    }
-
-    // Create a Consul client with the default host (localhost) and port (8500)
-    ConsulClient client = ConsulClient.create(vertx, new ConsulClientOptions()
+  @PostConstruct
+  void init() {
+    // Create a Consul client with the configured host (localhost) and port (8500)
+    client = ConsulClient.create(vertx, new ConsulClientOptions()
         .setHost(setHostConsul) //localhost
         .setPort(setPortConsul)); //8500
+  }
+
+  /**
+   * This method closes the Consul client when the application stops.
+   */
+  @PreDestroy
+  void close() {
+    if (client != null) {
+      client.close();
+    }
+  }
 
-    // Register a service with the provided name, id, and tags
-    // The service is running on localhost and port 12501
-    client.registerServiceAndAwait(new ServiceOptions()
+  /**
+   * This method registers a service with the provided name, id, and tags.
+   * Failed calls are retried with exponential backoff, and concurrent requests for the same id share one call.
+   *
+   * @param name the name of the service
+   * @param id   the id of the service
+   * @param tags the tags of the service
+   * @return a Uni that completes when the service is registered
+   */
+  public Uni<Void> registerService(String name, String id, List<String> tags) {
+    ServiceOptions options = new ServiceOptions()
         .setName(name)
         .setId(id)
         .setAddress(setHostAdressRegister) //localhost // La dirección en la que se está ejecutando tu servicio
         .setPort(setPortAdressRegister) //12505 // El puerto en el que se está ejecutando tu servicio
-        .setTags(new ArrayList<>(Arrays.asList(tags1, tags2))));
+        .setTags(new ArrayList<>(tags));
+
+    return coalesce("register:" + id, () -> client.registerService(options));
   }
 
-  public void deregisterService(Vertx vertx, String id) {
-    // Create a Consul client with the configured host and port
-    ConsulClient client = ConsulClient.create(vertx, new ConsulClientOptions()
-            .setHost(setHostConsul)
-            .setPort(setPortConsul));
+  /**
+   * This method deregisters a service by its id.
+   * Failed calls are retried with exponential backoff, and concurrent requests for the same id share one call.
+   *
+   * @param id the id of the service
+   * @return a Uni that completes when the service is deregistered
+   */
+  public Uni<Void> deregisterService(String id) {
+    return coalesce("deregister:" + id, () -> client.deregisterService(id));
+  }
 
-    // Deregister the service with Consul using its ID
-    client.deregisterServiceAndAwait(id);
+  private Uni<Void> coalesce(String key, Supplier<Uni<Void>> call) {
+    return inFlight.computeIfAbsent(key, k -> Uni.createFrom().deferred(call)
+        .onFailure().invoke(e -> log.info("Error en la llamada a Consul " + k + ": " + e.getMessage()))
+        .onFailure().retry().withBackOff(INITIAL_BACKOFF, MAX_BACKOFF).atMost(retryAttempts)
+        .onTermination().invoke(() -> inFlight.remove(k))
+        .memoize().indefinitely());
   }
-}
\ No newline at end of file
+}
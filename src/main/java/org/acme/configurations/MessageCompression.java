@@ -0,0 +1,368 @@
+package org.acme.configurations;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.java.Log;
+import org.acme.DTOs.CompressionPolicy;
+import org.acme.DTOs.CompressionStats;
+import org.apache.camel.component.cxf.jaxws.CxfConfigurer;
+import org.apache.cxf.endpoint.Client;
+import org.apache.cxf.endpoint.Server;
+import org.apache.cxf.frontend.AbstractWSDLBasedEndpointFactory;
+import org.apache.cxf.interceptor.Interceptor;
+import org.apache.cxf.interceptor.InterceptorProvider;
+import org.apache.cxf.interceptor.MessageSenderInterceptor;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.transport.common.gzip.GZIPInInterceptor;
+import org.apache.cxf.transport.common.gzip.GZIPOutInterceptor;
+import org.bson.Document;
+
+/**
+ * This class is responsible for the HTTP compression of the SOAP traffic of the proxy routes.
+ * The CXF consumer of a service can accept gzip or deflate requests and gzip its responses above a size threshold
+ * when the client sends Accept-Encoding, and the calls to the backend can be gzipped for backends that support it.
+ * The settings come from the CompressionPolicy stored with the service in Mongo and are read on every message,
+ * so a new policy also applies to a CXF consumer that is kept running during a hot swap.
+ * The bytes before and after compression are counted in each direction to show the savings.
+ * This class is annotated with @ApplicationScoped, meaning a single instance will be created for the entire application.
+ */
+@ApplicationScoped
+@Log
+public class MessageCompression {
+
+  boolean acceptCompressedRequests =
+      Boolean.parseBoolean(System.getenv().getOrDefault("COMPRESSION_ACCEPT_REQUESTS", "true"));
+  boolean compressResponses = Boolean.parseBoolean(System.getenv().getOrDefault("COMPRESSION_RESPONSES", "false"));
+  int threshold = Integer.parseInt(System.getenv().getOrDefault("COMPRESSION_THRESHOLD", "2048"));
+  boolean compressBackend = Boolean.parseBoolean(System.getenv().getOrDefault("COMPRESSION_BACKEND", "false"));
+
+  private final Map<String, ServiceCompression> services = new ConcurrentHashMap<>();
+
+  /**
+   * This method returns the policy of a service, filling the values it does not set with the defaults.
+   *
+   * @param requested the policy sent in the request, may be null
+   * @param stored    the service document stored in Mongo, may be empty
+   * @return the complete policy
+   */
+  public CompressionPolicy resolve(CompressionPolicy requested, Optional<Document> stored) {
+    CompressionPolicy policy = requested != null
+        ? requested
+        : stored.map(document -> fromDocument(document.get("compression", Document.class))).orElse(null);
+    if (policy == null) {
+      policy = new CompressionPolicy();
+    }
+    return new CompressionPolicy(
+        policy.getAcceptCompressedRequests() != null ? policy.getAcceptCompressedRequests() : acceptCompressedRequests,
+        policy.getCompressResponses() != null ? policy.getCompressResponses() : compressResponses,
+        policy.getThreshold() != null ? policy.getThreshold() : threshold,
+        policy.getCompressBackend() != null ? policy.getCompressBackend() : compressBackend);
+  }
+
+  /**
+   * This method converts a policy into the sub-document stored with the service in Mongo.
+   *
+   * @param policy the policy, may be null
+   * @return the document, or null if the policy is null
+   */
+  public static Document toDocument(CompressionPolicy policy) {
+    if (policy == null) {
+      return null;
+    }
+    return new Document()
+        .append("acceptCompressedRequests", policy.getAcceptCompressedRequests())
+        .append("compressResponses", policy.getCompressResponses())
+        .append("threshold", policy.getThreshold())
+        .append("compressBackend", policy.getCompressBackend());
+  }
+
+  /**
+   * This method reads a policy from the sub-document stored with the service in Mongo.
+   *
+   * @param document the document, may be null
+   * @return the policy, or null if the document is null
+   */
+  public static CompressionPolicy fromDocument(Document document) {
+    if (document == null) {
+      return null;
+    }
+    return new CompressionPolicy(
+        document.getBoolean("acceptCompressedRequests"),
+        document.getBoolean("compressResponses"),
+        document.getInteger("threshold"),
+        document.getBoolean("compressBackend"));
+  }
+
+  /**
+   * This method sets the policy of a service. Its byte counters are kept.
+   *
+   * @param nameService the name of the service
+   * @param policy      the complete policy of the service
+   */
+  public void register(String nameService, CompressionPolicy policy) {
+    services.computeIfAbsent(nameService, name -> new ServiceCompression()).policy =
+        policy != null ? policy : resolve(null, Optional.empty());
+  }
+
+  /**
+   * This method removes the policy and the counters of a service, for example when its routes are deleted.
+   *
+   * @param nameService the name of the service
+   */
+  public void release(String nameService) {
+    services.remove(nameService);
+  }
+
+  /**
+   * This method returns the CXF configurer that adds compression to the CXF consumer of a service.
+   *
+   * @param nameService the name of the service, which must be registered
+   * @return the configurer
+   */
+  public CxfConfigurer consumerConfigurer(String nameService) {
+    ServiceCompression compression = services.get(nameService);
+    return new CxfConfigurer() {
+      @Override
+      public void configure(AbstractWSDLBasedEndpointFactory factoryBean) {
+      }
+
+      @Override
+      public void configureClient(Client client) {
+      }
+
+      @Override
+      public void configureServer(Server server) {
+        compression.addConsumerInterceptors(server.getEndpoint());
+      }
+    };
+  }
+
+  /**
+   * This method returns the CXF configurer that adds compression to the backend client of a service.
+   * It must be set on an endpoint used by that service only, otherwise its counters get the traffic of the others.
+   *
+   * @param nameService the name of the service, which must be registered
+   * @param delegate    the configurer of the connection policy, may be null
+   * @return the configurer
+   */
+  public CxfConfigurer backendConfigurer(String nameService, CxfConfigurer delegate) {
+    ServiceCompression compression = services.get(nameService);
+    return new CxfConfigurer() {
+      @Override
+      public void configure(AbstractWSDLBasedEndpointFactory factoryBean) {
+        if (delegate != null) {
+          delegate.configure(factoryBean);
+        }
+      }
+
+      @Override
+      public void configureClient(Client client) {
+        if (delegate != null) {
+          delegate.configureClient(client);
+        }
+        compression.addBackendInterceptors(client);
+      }
+
+      @Override
+      public void configureServer(Server server) {
+        if (delegate != null) {
+          delegate.configureServer(server);
+        }
+      }
+    };
+  }
+
+  /**
+   * This method returns the bytes before and after compression in each direction, by service.
+   *
+   * @return the statistics of each service
+   */
+  public List<CompressionStats> getStats() {
+    List<CompressionStats> stats = new ArrayList<>();
+    services.forEach((nameService, compression) -> stats.add(compression.stats(nameService)));
+    return stats;
+  }
+
+  /**
+   * This class holds the policy, the interceptors and the byte counters of one service.
+   */
+  private static final class ServiceCompression {
+    private volatile CompressionPolicy policy;
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder requestWireBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+    private final LongAdder responseWireBytes = new LongAdder();
+    private final LongAdder backendRequestBytes = new LongAdder();
+    private final LongAdder backendRequestWireBytes = new LongAdder();
+    private final LongAdder backendResponseBytes = new LongAdder();
+    private final LongAdder backendResponseWireBytes = new LongAdder();
+
+    private void addConsumerInterceptors(InterceptorProvider provider) {
+      addInterceptors(provider, new PolicyGzipIn(false), new PolicyGzipOut(false),
+          requestWireBytes, requestBytes, responseBytes, responseWireBytes);
+    }
+
+    private void addBackendInterceptors(InterceptorProvider provider) {
+      addInterceptors(provider, new PolicyGzipIn(true), new PolicyGzipOut(true),
+          backendResponseWireBytes, backendResponseBytes, backendRequestBytes, backendRequestWireBytes);
+    }
+
+    // The wire counters wrap the transport streams and the plain counters wrap the gzip streams
+    private static void addInterceptors(InterceptorProvider provider, PolicyGzipIn gzipIn, PolicyGzipOut gzipOut,
+        LongAdder inWire, LongAdder inPlain, LongAdder outPlain, LongAdder outWire) {
+      List<Interceptor<? extends Message>> in = provider.getInInterceptors();
+      in.add(new CountingInInterceptor("wire", inWire, gzipIn.getId(), null));
+      in.add(gzipIn);
+      in.add(new CountingInInterceptor("plain", inPlain, null, gzipIn.getId()));
+      List<Interceptor<? extends Message>> out = provider.getOutInterceptors();
+      out.add(new CountingOutInterceptor("wire", outWire, gzipOut.getId(), MessageSenderInterceptor.class.getName()));
+      out.add(gzipOut);
+      out.add(new CountingOutInterceptor("plain", outPlain, null, gzipOut.getId()));
+    }
+
+    private CompressionStats stats(String nameService) {
+      long saved = requestBytes.sum() - requestWireBytes.sum()
+          + responseBytes.sum() - responseWireBytes.sum()
+          + backendRequestBytes.sum() - backendRequestWireBytes.sum()
+          + backendResponseBytes.sum() - backendResponseWireBytes.sum();
+      return new CompressionStats(nameService,
+          requestBytes.sum(), requestWireBytes.sum(), responseBytes.sum(), responseWireBytes.sum(),
+          backendRequestBytes.sum(), backendRequestWireBytes.sum(),
+          backendResponseBytes.sum(), backendResponseWireBytes.sum(), saved);
+    }
+
+    /**
+     * Decodes gzip or deflate messages when the policy allows it.
+     */
+    private final class PolicyGzipIn extends GZIPInInterceptor {
+      private final boolean backend;
+
+      private PolicyGzipIn(boolean backend) {
+        this.backend = backend;
+      }
+
+      @Override
+      public void handleMessage(Message message) {
+        if (backend ? policy.getCompressBackend() : policy.getAcceptCompressedRequests()) {
+          super.handleMessage(message);
+        }
+      }
+    }
+
+    /**
+     * Gzips responses above the threshold when the client accepts it, or every backend request when forced.
+     */
+    private final class PolicyGzipOut extends GZIPOutInterceptor {
+      private final boolean backend;
+
+      private PolicyGzipOut(boolean backend) {
+        this.backend = backend;
+        setForce(backend);
+      }
+
+      @Override
+      public void handleMessage(Message message) {
+        if (backend ? policy.getCompressBackend() : policy.getCompressResponses()) {
+          setThreshold(policy.getThreshold());
+          super.handleMessage(message);
+        }
+      }
+    }
+  }
+
+  /**
+   * Counts the bytes read from the message input stream at its place in the receive phase.
+   */
+  private static final class CountingInInterceptor extends AbstractPhaseInterceptor<Message> {
+    private final LongAdder bytes;
+
+    private CountingInInterceptor(String name, LongAdder bytes, String before, String after) {
+      super(CountingInInterceptor.class.getName() + "." + name, Phase.RECEIVE);
+      this.bytes = bytes;
+      if (before != null) {
+        addBefore(before);
+      }
+      if (after != null) {
+        addAfter(after);
+      }
+    }
+
+    @Override
+    public void handleMessage(Message message) {
+      InputStream input = message.getContent(InputStream.class);
+      if (input == null) {
+        return;
+      }
+      message.setContent(InputStream.class, new FilterInputStream(input) {
+        @Override
+        public int read() throws IOException {
+          int value = super.read();
+          if (value >= 0) {
+            bytes.increment();
+          }
+          return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+          int read = super.read(buffer, offset, length);
+          if (read > 0) {
+            bytes.add(read);
+          }
+          return read;
+        }
+      });
+    }
+  }
+
+  /**
+   * Counts the bytes written to the message output stream at its place in the prepare-send phase.
+   */
+  private static final class CountingOutInterceptor extends AbstractPhaseInterceptor<Message> {
+    private final LongAdder bytes;
+
+    private CountingOutInterceptor(String name, LongAdder bytes, String before, String after) {
+      super(CountingOutInterceptor.class.getName() + "." + name, Phase.PREPARE_SEND);
+      this.bytes = bytes;
+      if (before != null) {
+        addBefore(before);
+      }
+      if (after != null) {
+        addAfter(after);
+      }
+    }
+
+    @Override
+    public void handleMessage(Message message) {
+      OutputStream output = message.getContent(OutputStream.class);
+      if (output == null) {
+        return;
+      }
+      message.setContent(OutputStream.class, new FilterOutputStream(output) {
+        @Override
+        public void write(int value) throws IOException {
+          out.write(value);
+          bytes.increment();
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+          out.write(buffer, offset, length);
+          bytes.add(length);
+        }
+      });
+    }
+  }
+}
@@ -1,21 +1,35 @@
 package org.acme.controllers;
 
-import static java.lang.Thread.sleep;
-
+import io.smallrye.common.annotation.NonBlocking;
+import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
-import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
-import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
 import lombok.extern.java.Log;
 import org.acme.DTOs.*;
+import org.acme.configurations.AdminExecutor;
+import org.acme.configurations.BackendCircuitBreakers;
+import org.acme.configurations.BackendConnectionPools;
+import org.acme.configurations.MessageCompression;
 import org.acme.configurations.RouteStopException;
 import org.acme.entity.VariableNameEntity;
+import org.acme.routes.RouteFileUpload;
+import org.acme.service.ArtifactRepository;
+import org.acme.service.ArtifactUploadJobs;
+import org.acme.service.ReactiveWsService;
+import org.acme.service.RequestCoalescer;
+import org.acme.service.ResponseCache;
 import org.acme.service.UrlParser;
-import org.acme.service.WsService;
 import org.acme.service.WsdlHostInfo;
+import org.acme.service.XsltTemplateCache;
 import org.acme.servicesCamel.DynamicRoutesManager;
+import org.apache.camel.CamelExecutionException;
 import org.apache.camel.Exchange;
 import org.apache.camel.ProducerTemplate;
 import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
@@ -24,10 +38,12 @@ import java.io.InputStream;
 
 /**
  * This class is a JAX-RS resource that provides endpoints for managing dynamic routes.
+ * The endpoints that use Mongo return a Uni, so they do not hold a worker thread while waiting for the database.
+ * The blocking work of the other endpoints runs on the AdminExecutor pool instead of the shared worker pool,
+ * and is answered with 503 when that pool is saturated.
  */
 @Path("/dynamic")
 @Log
-@Transactional
 public class DynamicRoutesResource {
 
   DynamicRoutesManager dynamicRoutesManager;
@@ -35,11 +51,38 @@ public class DynamicRoutesResource {
   WsdlHostInfo wsdlHostInfo;
 
   @Inject
-  WsService wsService;
+  ReactiveWsService reactiveWsService;
 
   @Inject
   UrlParser urlParser;
 
+  @Inject
+  XsltTemplateCache xsltTemplateCache;
+
+  @Inject
+  BackendConnectionPools backendConnectionPools;
+
+  @Inject
+  BackendCircuitBreakers backendCircuitBreakers;
+
+  @Inject
+  MessageCompression messageCompression;
+
+  @Inject
+  AdminExecutor adminExecutor;
+
+  @Inject
+  ResponseCache responseCache;
+
+  @Inject
+  RequestCoalescer requestCoalescer;
+
+  @Inject
+  ArtifactRepository artifactRepository;
+
+  @Inject
+  ArtifactUploadJobs artifactUploadJobs;
+
 
   /**
    * Constructor for the DynamicRoutesResource class.
@@ -61,20 +104,22 @@ public class DynamicRoutesResource {
    *
    * @param routeData The data for the route to add.
    * @return A response indicating the result of the operation.
-   * @throws Exception If an error occurs while adding the route.
    */
   @POST
   @Path("/add")
   @Consumes(MediaType.APPLICATION_JSON)
-  public Response addDynamicRoute(RouteData routeData) throws Exception {
-    dynamicRoutesManager.addDynamicRoute(routeData.getUri(), routeData.getPortEndpoint(),
-        routeData.getPath(), routeData.getUriRest(), routeData.getXstlPath(),
-        routeData.getPortRest(), routeData.getHost());
-    return Response.status(Response.Status.CREATED).entity("Route created successfully").build();
+  public Uni<Response> addDynamicRoute(RouteData routeData) {
+    return admin(() -> {
+      dynamicRoutesManager.addDynamicRoute(routeData.getUri(), routeData.getPortEndpoint(),
+          routeData.getPath(), routeData.getUriRest(), routeData.getXstlPath(),
+          routeData.getPortRest(), routeData.getHost());
+      return Response.status(Response.Status.CREATED).entity("Route created successfully").build();
+    });
   }
 
   /**
    * Endpoint for uploading a WSDL file.
+   * The file is streamed to the artifact store, and its SHA-256 hash is checked when the form sends one.
    *
    * @param formData The form data containing the WSDL file.
    * @return A response indicating the result of the operation.
@@ -83,18 +128,23 @@ public class DynamicRoutesResource {
   @Path("/uploadwsdl")
   @Consumes(MediaType.MULTIPART_FORM_DATA)
   @Produces(MediaType.TEXT_PLAIN)
-  public Response uploaWsdl(FormData formData) throws IOException {
+  public Uni<Response> uploaWsdl(FormData formData) {
     InputStream wsdlContent = formData.getWsdlFile();
     String fileName = formData.getWsdlDetail();
-    log.info("File name: " + wsdlContent);
-    producerTemplate.sendBodyAndHeader("direct:processWsdl", wsdlContent, Exchange.FILE_NAME,
-        fileName);
-    wsService.createWs(formData);
-    return Response.ok("Archivo WSDL recibido y procesado").build();
+    log.info("File name: " + fileName);
+    return limitOverload(adminExecutor.submit(() -> {
+          producerTemplate.sendBodyAndHeaders("direct:processWsdl", wsdlContent,
+              uploadHeaders(fileName, formData.getSha256()));
+          return fileName;
+        })
+        .chain(() -> reactiveWsService.createWs(formData))
+        .map(ignored -> Response.ok("Archivo WSDL recibido y procesado").build()))
+        .onFailure().recoverWithItem(DynamicRoutesResource::uploadFailure);
   }
 
   /**
    * Endpoint for uploading an XSLT file.
+   * The file is streamed to the artifact store, and its SHA-256 hash is checked when the form sends one.
    *
    * @param xsltData The form data containing the XSLT file.
    * @return A response indicating the result of the operation.
@@ -103,13 +153,49 @@ public class DynamicRoutesResource {
   @Path("/uploadxslt")
   @Consumes(MediaType.MULTIPART_FORM_DATA)
   @Produces(MediaType.TEXT_PLAIN)
-  public Response uploaXstl(XsltData xsltData) {
+  public Uni<Response> uploaXstl(XsltData xsltData) {
     InputStream wsdlContent = xsltData.getXsltFile();
     String fileName = xsltData.getXsltDetail();
-    log.info("File name: " + wsdlContent);
-    producerTemplate.sendBodyAndHeader("direct:processXslt", wsdlContent, Exchange.FILE_NAME,
-        fileName);
-    return Response.ok("Archivo WSDL recibido y procesado").build();
+    log.info("File name: " + fileName);
+    return admin(() -> {
+      producerTemplate.sendBodyAndHeaders("direct:processXslt", wsdlContent,
+          uploadHeaders(fileName, xsltData.getSha256()));
+      return Response.ok("Archivo WSDL recibido y procesado").build();
+    }).onFailure().recoverWithItem(DynamicRoutesResource::uploadFailure);
+  }
+
+  /**
+   * Endpoint for uploading a zip archive with many WSDL and XSLT files.
+   * The files are stored, parsed and registered in the background; the response carries the id of the job to poll.
+   *
+   * @param archiveData The form data containing the archive and, optionally, its SHA-256 hash.
+   * @return A response with the new job, or 400 if the hash of the archive does not match.
+   */
+  @POST
+  @Path("/upload/archive")
+  @Consumes(MediaType.MULTIPART_FORM_DATA)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Uni<Response> uploadArchive(ArchiveData archiveData) {
+    return admin(() -> {
+      UploadJob job = artifactUploadJobs.submitArchive(archiveData.getArchiveFile(), archiveData.getSha256());
+      return Response.accepted(job).header("Location", "/dynamic/upload/jobs/" + job.getJobId()).build();
+    }).onFailure().recoverWithItem(DynamicRoutesResource::uploadFailure);
+  }
+
+  /**
+   * Endpoint for getting the progress of a bulk upload.
+   *
+   * @param jobId The id of the job.
+   * @return A response containing the status of the job and the result of each file, or 404 if it does not exist.
+   */
+  @GET
+  @Path("/upload/jobs/{jobId}")
+  @Produces(MediaType.APPLICATION_JSON)
+  @NonBlocking
+  public Response getUploadJob(@PathParam("jobId") String jobId) {
+    return artifactUploadJobs.get(jobId)
+        .map(job -> Response.ok(job).build())
+        .orElseGet(() -> Response.status(Response.Status.NOT_FOUND).entity("Carga no encontrada: " + jobId).build());
   }
 
   /**
@@ -121,13 +207,24 @@ public class DynamicRoutesResource {
   @POST
   @Consumes(MediaType.APPLICATION_JSON)
   @Path("/soap")
-  public Response createSoapRoute(ModifyDataHots soapRoute) {
-    try {
-      dynamicRoutesManager.addSoapRoute(soapRoute);
-      return Response.ok("ruta creada correctamente").build();
-    } catch (Exception e) {
-      return Response.serverError().entity(e.getMessage()).build();
-    }
+  public Uni<Response> createSoapRoute(ModifyDataHots soapRoute) {
+    return limitOverload(dynamicRoutesManager.addSoapRouteReactive(soapRoute)
+        .map(ignored -> Response.ok("ruta creada correctamente").build()))
+        .onFailure().recoverWithItem(e -> Response.serverError().entity(e.getMessage()).build());
+  }
+
+  /**
+   * Endpoint for creating several SOAP routes in a single call.
+   *
+   * @param soapRoutes The data for the SOAP routes to create.
+   * @return A response containing the result of each service.
+   */
+  @POST
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  @Path("/soap/batch")
+  public Uni<Response> createSoapRoutes(List<ModifyDataHots> soapRoutes) {
+    return admin(() -> Response.ok(dynamicRoutesManager.addSoapRoutes(soapRoutes)).build());
   }
 
   /**
@@ -144,7 +241,8 @@ public class DynamicRoutesResource {
   }*/
 
   /**
-   * Endpoint for setting the XSTL value.
+   * Endpoint for setting the XSTL value of a route.
+   * The value only applies to the given route and the route keeps running.
    *
    * @param xstlValue The XSTL value to set.
    * @return A response indicating the result of the operation.
@@ -152,8 +250,9 @@ public class DynamicRoutesResource {
   @POST
   @Consumes(MediaType.APPLICATION_JSON)
   @Path("/stopRoute")
+  @NonBlocking
   public Response setXstl(XstlValue xstlValue) throws RouteStopException {
-    dynamicRoutesManager.stopRoute(xstlValue);
+    dynamicRoutesManager.setTransformation(xstlValue);
     return Response.ok("Xstl agregado correctamente").build();
   }
 
@@ -166,13 +265,11 @@ public class DynamicRoutesResource {
   @POST
   @Consumes(MediaType.APPLICATION_JSON)
   @Path("/startRoute")
-  public Response startRoute(XstlValue routeId) {
-    try {
+  public Uni<Response> startRoute(XstlValue routeId) {
+    return admin(() -> {
       dynamicRoutesManager.startRoute(routeId.getRouteId());
       return Response.ok("Ruta iniciada correctamente").build();
-    } catch (Exception e) {
-      return Response.serverError().entity(e.getMessage()).build();
-    }
+    }).onFailure().recoverWithItem(e -> Response.serverError().entity(e.getMessage()).build());
   }
 
   /**
@@ -184,10 +281,10 @@ public class DynamicRoutesResource {
   @POST
   @Path("/dataHost")
   @Produces(MediaType.APPLICATION_JSON)
-  public Response getHostData(DataResponseHost dataResponseHost) {
+  public Uni<Response> getHostData(DataResponseHost dataResponseHost) {
     log.info("Name service: " + dataResponseHost.getNameService());
-    return Response.ok(wsService.getAllWs(dataResponseHost.getNameService())).build();
-
+    return reactiveWsService.getAllWs(dataResponseHost.getNameService())
+        .map(wservice -> Response.ok(wservice).build());
   }
 
   /**
@@ -195,25 +292,24 @@ public class DynamicRoutesResource {
    *
    * @param modifyDataHots The data for the route to modify.
    * @return A response indicating the result of the operation.
-   * @throws Exception If an error occurs while modifying the route.
    */
   @POST
   @Path("/modify")
   @Consumes(MediaType.APPLICATION_JSON)
-  public Response modifyRoute(ModifyDataHots modifyDataHots) throws Exception {
+  public Uni<Response> modifyRoute(ModifyDataHots modifyDataHots) {
     log.info("Name service: " + modifyDataHots.getNameService());
-    wsService.modifyWsByName(modifyDataHots);
-    dynamicRoutesManager.addSoapRoute(modifyDataHots);
-    return Response.status(Response.Status.CREATED).entity("Route modified successfully").build();
+    return limitOverload(reactiveWsService.modifyWsByName(modifyDataHots)
+        .chain(() -> dynamicRoutesManager.addSoapRouteReactive(modifyDataHots))
+        .map(ignored -> Response.status(Response.Status.CREATED).entity("Route modified successfully").build()));
   }
 
 
   @POST
   @Path("variable")
   @Consumes(MediaType.APPLICATION_JSON)
-  public Response addVariable(VariableNameEntity variable) {
-    wsService.saveVariable(variable);
-    return Response.status(Response.Status.CREATED).entity("Variable created successfully").build();
+  public Uni<Response> addVariable(VariableNameEntity variable) {
+    return reactiveWsService.saveVariable(variable)
+        .map(ignored -> Response.status(Response.Status.CREATED).entity("Variable created successfully").build());
   }
 
   /**
@@ -226,21 +322,221 @@ public class DynamicRoutesResource {
   @GET
   @Path("/getVariable")
   @Produces(MediaType.APPLICATION_JSON)
-  public Response getVariable() {
-    return Response.ok(wsService.getVariable()).build();
+  public Uni<Response> getVariable() {
+    return reactiveWsService.getVariable().map(variable -> Response.ok(variable).build());
+  }
+
+  /**
+   * Endpoint for getting the statistics of the compiled XSLT cache.
+   *
+   * @return A response containing the hits, misses and compilation time of the cache.
+   */
+  @GET
+  @Path("/xsltCache")
+  @Produces(MediaType.APPLICATION_JSON)
+  @NonBlocking
+  public Response getXsltCacheStats() {
+    return Response.ok(xsltTemplateCache.getStats()).build();
+  }
+
+  /**
+   * Endpoint for getting the compilation and warm-up timings of the last XSLT uploaded for each service.
+   *
+   * @return A response containing the compile time, samples, iterations and transform times of each service.
+   */
+  @GET
+  @Path("/xsltWarmup")
+  @Produces(MediaType.APPLICATION_JSON)
+  @NonBlocking
+  public Response getXsltWarmups() {
+    return Response.ok(xsltTemplateCache.getWarmups()).build();
+  }
+
+  /**
+   * Endpoint for getting the usage of the outbound connection pool by backend.
+   *
+   * @return A response containing the services, in-flight calls and requests of each backend host:port.
+   */
+  @GET
+  @Path("/backendPools")
+  @Produces(MediaType.APPLICATION_JSON)
+  @NonBlocking
+  public Response getBackendPools() {
+    return Response.ok(backendConnectionPools.getStats()).build();
+  }
+
+  /**
+   * Endpoint for getting the circuit breaker and bulkhead state of each service.
+   *
+   * @return A response containing the state, failure rate, slow call rate and concurrent calls of each service.
+   */
+  @GET
+  @Path("/circuitBreakers")
+  @Produces(MediaType.APPLICATION_JSON)
+  @NonBlocking
+  public Response getCircuitBreakers() {
+    return Response.ok(backendCircuitBreakers.getStats()).build();
+  }
+
+  /**
+   * Endpoint for getting the single-flight statistics of each service.
+   *
+   * @return A response containing the calls in flight, leader calls and coalesced calls of each service.
+   */
+  @GET
+  @Path("/singleFlight")
+  @Produces(MediaType.APPLICATION_JSON)
+  @NonBlocking
+  public Response getSingleFlightStats() {
+    return Response.ok(requestCoalescer.getStats()).build();
+  }
+
+  /**
+   * Endpoint for getting the bytes before and after compression of each service.
+   *
+   * @return A response containing the plain and wire bytes of the requests, responses and backend calls of each service.
+   */
+  @GET
+  @Path("/compression")
+  @Produces(MediaType.APPLICATION_JSON)
+  @NonBlocking
+  public Response getCompressionStats() {
+    return Response.ok(messageCompression.getStats()).build();
+  }
+
+  /**
+   * Endpoint for getting the statistics of the response cache by service.
+   *
+   * @return A response containing the entries, bytes, hits, misses and evictions of each service.
+   */
+  @GET
+  @Path("/responseCache")
+  @Produces(MediaType.APPLICATION_JSON)
+  @NonBlocking
+  public Response getResponseCacheStats() {
+    return Response.ok(responseCache.getStats()).build();
+  }
+
+  /**
+   * Endpoint for removing the cached responses of a service, or of every service when none is given.
+   *
+   * @param nameService The name of the service, optional.
+   * @return A response indicating the cache was emptied.
+   */
+  @DELETE
+  @Path("/responseCache")
+  @Produces(MediaType.APPLICATION_JSON)
+  @NonBlocking
+  public Response purgeResponseCache(@QueryParam("nameService") String nameService) {
+    if (nameService == null || nameService.isBlank()) {
+      responseCache.purgeAll();
+    } else {
+      responseCache.purge(nameService);
+    }
+    return Response.ok("Caché de respuestas vaciada").build();
+  }
+
+  /**
+   * Endpoint for getting the stored versions of the WSDL or XSLT of a service.
+   *
+   * @param kind        The kind of artifact, wsdl or xslt.
+   * @param nameService The name of the service.
+   * @return A response containing the version, hash, size and upload time of each version, oldest first.
+   */
+  @GET
+  @Path("/artifacts/{kind}/{nameService}")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Uni<Response> getArtifactHistory(@PathParam("kind") String kind,
+                                          @PathParam("nameService") String nameService) {
+    return admin(() -> {
+      try {
+        return Response.ok(artifactRepository.history(kind, nameService)).build();
+      } catch (IllegalArgumentException e) {
+        return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+      }
+    });
   }
 
   @POST
   @Path("/deleteRoute")
   @Produces(MediaType.APPLICATION_JSON)
-    public Response deleteRoute(DeleteRouteDTO deleteRoute) {
-        try {
-        dynamicRoutesManager.deleteRoute(deleteRoute);
-        return Response.ok("Ruta eliminada correctamente").build();
-        } catch (Exception e) {
-        return Response.serverError().entity(e.getMessage()).build();
-        }
+    public Uni<Response> deleteRoute(DeleteRouteDTO deleteRoute) {
+        return limitOverload(dynamicRoutesManager.deleteRouteReactive(deleteRoute)
+            .map(ignored -> Response.ok("Ruta eliminada correctamente").build()))
+            .onFailure().recoverWithItem(e -> Response.serverError().entity(e.getMessage()).build());
+    }
+
+  /**
+   * Endpoint for deleting several routes in a single call.
+   *
+   * @param deleteRoutes The services to delete.
+   * @return A response containing the result of each service.
+   */
+  @POST
+  @Path("/deleteRoute/batch")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Uni<Response> deleteRoutes(List<DeleteRouteDTO> deleteRoutes) {
+    return admin(() -> Response.ok(dynamicRoutesManager.deleteRoutes(deleteRoutes)).build());
+  }
+
+  /**
+   * Builds the headers of the upload routes.
+   *
+   * @param fileName The name of the uploaded file.
+   * @param sha256   The SHA-256 hash sent by the client, may be null.
+   * @return The headers.
+   */
+  private static Map<String, Object> uploadHeaders(String fileName, String sha256) {
+    Map<String, Object> headers = new HashMap<>();
+    headers.put(Exchange.FILE_NAME, fileName);
+    if (sha256 != null) {
+      headers.put(RouteFileUpload.CHECKSUM_HEADER, sha256);
     }
+    return headers;
+  }
+
+  /**
+   * Answers a failed upload with 400 when the file was rejected, and with 500 otherwise.
+   *
+   * @param failure The failure of the upload.
+   * @return The error response.
+   */
+  private static Response uploadFailure(Throwable failure) {
+    Throwable cause = failure instanceof CamelExecutionException && failure.getCause() != null
+        ? failure.getCause()
+        : failure;
+    if (cause instanceof RejectedExecutionException) {
+      return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+          .entity("Demasiadas operaciones de administración en curso").build();
+    }
+    Response.Status status = cause instanceof IllegalArgumentException
+        ? Response.Status.BAD_REQUEST
+        : Response.Status.INTERNAL_SERVER_ERROR;
+    return Response.status(status).entity(cause.getMessage()).build();
+  }
+
+  /**
+   * Runs a blocking action of an endpoint on the admin pool.
+   *
+   * @param action The blocking action that builds the response.
+   * @return The response, or 503 if the admin pool is saturated.
+   */
+  private Uni<Response> admin(Callable<Response> action) {
+    return limitOverload(adminExecutor.submit(action));
+  }
+
+  /**
+   * Answers with 503 when the admin pool rejects the work of an endpoint.
+   *
+   * @param response The response of the endpoint.
+   * @return The same response, or 503 if the admin pool is saturated.
+   */
+  private static Uni<Response> limitOverload(Uni<Response> response) {
+    return response.onFailure(RejectedExecutionException.class)
+        .recoverWithItem(e -> Response.status(Response.Status.SERVICE_UNAVAILABLE)
+            .entity("Demasiadas operaciones de administración en curso").build());
+  }
 
 
 
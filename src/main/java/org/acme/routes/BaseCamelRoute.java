@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.acme.configurations.CardXmlProcess;
+import org.apache.camel.LoggingLevel;
 import org.apache.camel.builder.RouteBuilder;
 import org.apache.camel.component.cxf.jaxws.CxfEndpoint;
 import org.slf4j.Logger;
@@ -61,7 +62,8 @@ public class BaseCamelRoute extends RouteBuilder {
             .setHeader("operationNamespace", constant("http://www.bbvacard.com/servicesoapcard/gen"))
             .setHeader("CamelCxfRsRequestDataFormat", constant("MESSAGE"))
             .setHeader("Content-Type", constant("text/xml"))
-            .log("Processing message: ${body}");
+            // Only read the converted body back into memory when debugging
+            .log(LoggingLevel.DEBUG, "Processing message: ${body}");
 
         // Define a route for processing XML requests
         rest("xml")
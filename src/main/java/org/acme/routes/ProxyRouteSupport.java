@@ -0,0 +1,55 @@
+package org.acme.routes;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.Getter;
+import org.acme.DTOs.ConditionBean;
+import org.acme.configurations.BackendCircuitBreakers;
+import org.acme.configurations.BackendConnectionPools;
+import org.acme.configurations.MessageCompression;
+import org.acme.service.RequestCoalescer;
+import org.acme.service.ResponseCache;
+import org.acme.service.RouteMetrics;
+import org.acme.service.WsdlCatalog;
+import org.acme.service.XsltTemplateCache;
+
+/**
+ * This class groups the shared beans used by the dynamically created XstlRouteTransform routes.
+ * The routes are created with new instead of being injected, so they receive this single bean
+ * instead of one constructor argument per collaborator.
+ * It is annotated with @ApplicationScoped, meaning a single instance will be created for the entire application.
+ */
+@ApplicationScoped
+@Getter
+public class ProxyRouteSupport {
+
+  @Inject
+  XsltTemplateCache templateCache;
+
+  @Inject
+  ConditionBean conditionBean;
+
+  @Inject
+  WsdlCatalog wsdlCatalog;
+
+  @Inject
+  RouteVersions routeVersions;
+
+  @Inject
+  BackendConnectionPools connectionPools;
+
+  @Inject
+  BackendCircuitBreakers circuitBreakers;
+
+  @Inject
+  MessageCompression compression;
+
+  @Inject
+  RouteMetrics routeMetrics;
+
+  @Inject
+  ResponseCache responseCache;
+
+  @Inject
+  RequestCoalescer requestCoalescer;
+}
@@ -1,5 +1,13 @@
 package org.acme.routes;
 
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.io.InputStream;
+import javax.xml.transform.Templates;
+import org.acme.DTOs.ArtifactVersion;
+import org.acme.service.ArtifactRepository;
+import org.acme.service.WsdlCatalog;
+import org.acme.service.XsltTemplateCache;
 import org.apache.camel.Exchange;
 import org.apache.camel.builder.RouteBuilder;
 
@@ -7,13 +15,33 @@ import org.apache.camel.builder.RouteBuilder;
  * This class is responsible for defining the routes for file upload.
  * It extends RouteBuilder from Apache Camel, which allows it to define routes for message processing.
  * It defines two routes: one for processing WSDL files and another for processing XSLT files.
- * The files are saved in the respective directories under src/main/resources.
+ * The files are saved as new versions in the ArtifactRepository, which every replica reads from.
  */
+@ApplicationScoped
 public class RouteFileUpload extends RouteBuilder {
+
+    public static final String NAME_SERVICE_HEADER = "artifactNameService";
+    public static final String VERSION_HEADER = "artifactVersion";
+    // Optional SHA-256 hash sent by the client, checked while the file is streamed to the store
+    public static final String CHECKSUM_HEADER = "artifactSha256";
+    private static final String ARTIFACT_PROPERTY = "artifactStoredVersion";
+    private static final String TEMPLATES_PROPERTY = "artifactCompiledXslt";
+
+    @Inject
+    ArtifactRepository artifactRepository;
+
+    @Inject
+    XsltTemplateCache xsltTemplateCache;
+
+    @Inject
+    WsdlCatalog wsdlCatalog;
+
     /**
      * This method is called to configure the routes.
      * It defines two routes: one for processing WSDL files and another for processing XSLT files.
-     * The files are saved in the respective directories under src/main/resources.
+     * The files are saved in the ArtifactRepository under the name of the file without extension, which is the service name.
+     * Saving a WSDL file refreshes its entry in the WsdlCatalog. An XSLT file is compiled and warmed up before it is saved,
+     * is rejected with its diagnostics if it is not valid, and its compiled stylesheet replaces the one cached for its service.
      *
      * @throws Exception if an error occurs during configuration
      */
@@ -23,18 +51,49 @@ public class RouteFileUpload extends RouteBuilder {
         from("direct:processWsdl")
             // Set the file name header to the name of the file without the extension, followed by .wsdl
             .setHeader(Exchange.FILE_NAME, simple("${file:name.noext}.wsdl"))
-            // Save the file in the wsdl directory under src/main/resources
-            .to("file:src/main/resources/wsdl/")
+            // Save the file as a new version of the service in the artifact store
+            .process(exchange -> store(exchange, ArtifactRepository.WSDL))
+            // Index the new version right away on this replica
+            .process(exchange -> wsdlCatalog.refresh(exchange.getIn().getHeader(NAME_SERVICE_HEADER, String.class)))
             // Log a message indicating that the WSDL file has been saved
-            .log("Archivo WSDL guardado en resources");
+            .log("Archivo WSDL guardado, versión ${header." + VERSION_HEADER + "}");
 
         // Define a route for processing XSLT files
         from("direct:processXslt")
             // Set the file name header to the name of the file without the extension, followed by .xslt
             .setHeader(Exchange.FILE_NAME, simple("${file:name.noext}.xslt"))
-            // Save the file in the xslt directory under src/main/resources
-            .to("file:src/main/resources/xslt/")
+            // Compile, validate and warm up the stylesheet, and save it as a new version only if it is valid
+            .process(exchange -> store(exchange, ArtifactRepository.XSLT))
+            // Hand the compiled stylesheet to the running routes so no request compiles it
+            .process(exchange -> xsltTemplateCache.publish(
+                exchange.getIn().getHeader(NAME_SERVICE_HEADER, String.class),
+                exchange.getProperty(ARTIFACT_PROPERTY, ArtifactVersion.class),
+                exchange.getProperty(TEMPLATES_PROPERTY, Templates.class)))
             // Log a message indicating that the XSLT file has been saved
-            .log("Archivo XSTL guardado en resources");
+            .log("Archivo XSTL guardado, versión ${header." + VERSION_HEADER + "}");
+    }
+
+    /**
+     * This method streams the body of an upload to the ArtifactRepository, checking the CHECKSUM_HEADER when present.
+     * An XSLT is precompiled before it is stored, and the compiled stylesheet is kept in the TEMPLATES_PROPERTY.
+     * The service name and the stored version are set as headers for the next steps of the route.
+     *
+     * @param exchange the exchange with the uploaded file
+     * @param kind     the kind of artifact, wsdl or xslt
+     * @throws Exception if the file cannot be stored
+     */
+    private void store(Exchange exchange, String kind) throws Exception {
+        String fileName = exchange.getIn().getHeader(Exchange.FILE_NAME, String.class);
+        String nameService = fileName.substring(0, fileName.length() - kind.length() - 1);
+        ArtifactRepository.Validator validator = ArtifactRepository.XSLT.equals(kind)
+            ? (staged, hash) -> exchange.setProperty(TEMPLATES_PROPERTY,
+                xsltTemplateCache.precompile(nameService, staged, hash))
+            : null;
+        ArtifactVersion version = artifactRepository.put(kind, nameService,
+            exchange.getIn().getBody(InputStream.class), exchange.getIn().getHeader(CHECKSUM_HEADER, String.class),
+            validator);
+        exchange.setProperty(ARTIFACT_PROPERTY, version);
+        exchange.getIn().setHeader(NAME_SERVICE_HEADER, nameService);
+        exchange.getIn().setHeader(VERSION_HEADER, version.getVersion());
     }
 }
\ No newline at end of file
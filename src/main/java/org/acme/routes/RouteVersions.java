@@ -0,0 +1,131 @@
+package org.acme.routes;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is responsible for keeping the active version of the backend route of each proxied service.
+ * The CXF consumer route of a service looks up its active version on every exchange, so a new version
+ * can be started next to the old one and traffic switched to it atomically.
+ * It is annotated with @ApplicationScoped, meaning a single instance will be created for the entire application.
+ */
+@ApplicationScoped
+public class RouteVersions {
+
+  private static final String VERSION_SEPARATOR = "-v";
+
+  private final AtomicLong sequence = new AtomicLong();
+  private final Map<String, Long> activeVersions = new ConcurrentHashMap<>();
+  private final Map<String, Long> wsdlVersions = new ConcurrentHashMap<>();
+  private final Map<String, Boolean> asyncConsumers = new ConcurrentHashMap<>();
+
+  /**
+   * This method returns a new version number, unique for the whole application.
+   *
+   * @return the new version number
+   */
+  public long nextVersion() {
+    return sequence.incrementAndGet();
+  }
+
+  /**
+   * This method returns the id of the backend route of a service for a given version.
+   *
+   * @param nameService the name of the service
+   * @param version     the version number
+   * @return the route id
+   */
+  public static String routeId(String nameService, long version) {
+    return nameService + VERSION_SEPARATOR + version;
+  }
+
+  /**
+   * This method checks whether a route id is a backend route version of a service.
+   *
+   * @param routeId     the route id
+   * @param nameService the name of the service
+   * @return true if the route id belongs to a version of the service
+   */
+  public static boolean isVersionOf(String routeId, String nameService) {
+    String prefix = nameService + VERSION_SEPARATOR;
+    return routeId.startsWith(prefix)
+        && routeId.length() > prefix.length()
+        && routeId.substring(prefix.length()).chars().allMatch(Character::isDigit);
+  }
+
+  /**
+   * This method returns the id of the active backend route of a service.
+   *
+   * @param nameService the name of the service
+   * @return the route id, or null if the service has no active version
+   */
+  public String activeRouteId(String nameService) {
+    Long version = activeVersions.get(nameService);
+    return version != null ? routeId(nameService, version) : null;
+  }
+
+  /**
+   * This method switches the traffic of a service to a new version.
+   *
+   * @param nameService the name of the service
+   * @param version     the new version number
+   * @return the id of the previously active route, or null if there was none
+   */
+  public String activate(String nameService, long version) {
+    Long previous = activeVersions.put(nameService, version);
+    return previous != null ? routeId(nameService, previous) : null;
+  }
+
+  /**
+   * This method returns the modification time of the WSDL file the CXF consumer of a service was built with.
+   *
+   * @param nameService the name of the service
+   * @return the modification time, or null if the consumer was not built
+   */
+  public Long wsdlVersion(String nameService) {
+    return wsdlVersions.get(nameService);
+  }
+
+  /**
+   * This method records the modification time of the WSDL file the CXF consumer of a service was built with.
+   *
+   * @param nameService  the name of the service
+   * @param lastModified the modification time of the WSDL file
+   */
+  public void setWsdlVersion(String nameService, long lastModified) {
+    wsdlVersions.put(nameService, lastModified);
+  }
+
+  /**
+   * This method returns whether the CXF consumer of a service was built for the asynchronous proxy mode.
+   *
+   * @param nameService the name of the service
+   * @return the mode, or null if the consumer was not built
+   */
+  public Boolean asyncConsumer(String nameService) {
+    return asyncConsumers.get(nameService);
+  }
+
+  /**
+   * This method records whether the CXF consumer of a service was built for the asynchronous proxy mode.
+   *
+   * @param nameService the name of the service
+   * @param async       true if the consumer suspends its exchanges instead of holding a thread
+   */
+  public void setAsyncConsumer(String nameService, boolean async) {
+    asyncConsumers.put(nameService, async);
+  }
+
+  /**
+   * This method forgets a service, for example when its routes are deleted.
+   *
+   * @param nameService the name of the service
+   */
+  public void remove(String nameService) {
+    activeVersions.remove(nameService);
+    wsdlVersions.remove(nameService);
+    asyncConsumers.remove(nameService);
+  }
+}
@@ -1,16 +1,24 @@
 package org.acme.routes;
 
 import jakarta.enterprise.context.ApplicationScoped;
-import java.io.IOException;
-import java.net.URISyntaxException;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.extern.java.Log;
-import org.acme.DTOs.ConditionBean;
+import org.acme.DTOs.CircuitBreakerPolicy;
+import org.acme.DTOs.CompressionPolicy;
+import org.acme.DTOs.ConnectionPolicy;
+import org.acme.DTOs.ResponseCachePolicy;
+import org.acme.configurations.BackendCircuitBreakers;
+import org.acme.configurations.BackendConnectionPools;
+import org.acme.configurations.MessageCompression;
+import org.acme.service.RequestCoalescer;
+import org.acme.service.ResponseCache;
+import org.acme.service.RouteMetrics;
+import org.apache.camel.Exchange;
+import org.apache.camel.LoggingLevel;
 import org.apache.camel.builder.RouteBuilder;
-
-import java.io.File;
+import org.apache.camel.component.cxf.jaxws.CxfEndpoint;
 
 /**
  * This class is responsible for defining the XSLT transformation route.
@@ -25,72 +33,163 @@ import java.io.File;
 @NoArgsConstructor
 public class XstlRouteTransform extends RouteBuilder {
 
+  public static final String PROXY_ROUTE_PROPERTY = "proxyRoute";
+
   private String uriLocal;
   private String nameService;
   private String protocol;
   private String host;
   private String port;
   private String path;
-
-  private static final String WSDL_DIRECTORY = "src/main/resources/wsdl/";
-  private static final String XSTL_DIRECTORY = "src/main/resources/xslt/";
+  private ProxyRouteSupport support;
+  private long version;
+  // When true only the versioned backend route is built, next to the already running CXF consumer
+  private boolean backendOnly;
+  private ConnectionPolicy connectionPolicy;
+  private ResponseCachePolicy responseCachePolicy;
+  private CircuitBreakerPolicy circuitBreakerPolicy;
+  private boolean singleFlight;
+  private CompressionPolicy compressionPolicy;
 
   /**
    * This method is called to configure the routes.
-   * It first checks for the presence of WSDL files in the WSDL_DIRECTORY.
-   * If a WSDL file is found, it sets up a route from a CXF endpoint to either apply an XSLT transformation or not, based on a condition.
-   * The transformed or original message is then sent to another CXF endpoint.
+   * It first looks up the WSDL file of the service in the WsdlCatalog.
+   * If a WSDL file is found, it sets up a route from a CXF endpoint that forwards every message to the
+   * active version of the backend route of the service, as stored in RouteVersions, or answers with a SOAP fault
+   * while no version is active yet.
+   * The versioned backend route either applies an XSLT transformation or not, based on the condition stored
+   * for this service in the ConditionBean, and then sends the message to another CXF endpoint.
+   * The client of that endpoint is configured with the connection policy of the service and uses the connection
+   * pool shared by every route to the same backend host:port.
+   * In single-flight mode, an exchange identical to one already in flight gets a copy of its response instead.
+   * Operations listed in the response cache policy of the service are answered from the ResponseCache when the
+   * same request was already sent to the backend within the TTL, and their backend responses are stored otherwise.
+   * The other calls go through the circuit breaker and the bulkhead of the service, which answer with a SOAP fault
+   * while the backend is failing, too slow or already handling the maximum number of concurrent calls.
+   * With the asyncProxy connection policy the consumer suspends the exchange and the backend is called through the
+   * asynchronous routing engine, so no thread is held while the backend answers; otherwise both run synchronously.
+   * Both CXF endpoints belong to this service only and get its compression interceptors, driven by its
+   * compression policy, so the byte counters of a service never include the traffic of another one.
+   * The transform, backend and total time of every exchange are recorded in RouteMetrics.
+   * The XSLT transformation uses the stylesheet compiled by the shared XsltTemplateCache.
    *
    * @throws Exception if an error occurs during configuration
    */
   @Override
   public void configure() throws Exception {
-    var wsdlFiles = new File(WSDL_DIRECTORY).listFiles((dir, name) -> name.endsWith(".wsdl"));
-
-    if (wsdlFiles == null || wsdlFiles.length == 0) {
-      log.info("Ningún archivo WSDL encontrado");
+    if (uriLocal == null || nameService == null || support == null) {
+      log.info("La ruta no está configurada");
       return;
     }
 
-    File desiredWsdlFile = null;
-    for (File file : wsdlFiles) {
-      if (file.getName().equals(nameService+".wsdl")) {
-        desiredWsdlFile = file;
-        log.info("Se encontró el archivo WSDL deseado: " + nameService);
-        break;
-      }
-    }
-
-    if (desiredWsdlFile == null) {
+    var wsdlDefinition = support.getWsdlCatalog().get(nameService).orElse(null);
+    if (wsdlDefinition == null) {
       log.info("No se encontró el archivo WSDL deseado: " + nameService);
       return;
     }
 
-    String wsdlPath = desiredWsdlFile.getAbsolutePath();
-    var cxfEndpoint=String.format("cxf:%s?wsdlURL=file:%s&dataFormat=MESSAGE", uriLocal, wsdlPath);
+    RouteVersions routeVersions = support.getRouteVersions();
+    RouteMetrics.ServiceMetrics metrics = support.getRouteMetrics().register(nameService);
+    boolean asyncProxy = connectionPolicy.getAsyncProxy();
+    MessageCompression compression = support.getCompression();
+    compression.register(nameService, compressionPolicy);
+    String versionRouteId = RouteVersions.routeId(nameService, version);
 
-    if (uriLocal == null || nameService == null) {
-      log.info("La ruta no está configurada");
-      return;
+    if (!backendOnly) {
+      String wsdlPath = wsdlDefinition.getWsdlPath();
+      var cxfEndpoint=String.format("cxf:%s?wsdlURL=file:%s&dataFormat=MESSAGE", uriLocal, wsdlPath);
+      if (asyncProxy) {
+        // The exchange is suspended with a CXF continuation while the backend answers
+        cxfEndpoint += "&synchronous=false&continuationTimeout="
+            + BackendConnectionPools.continuationTimeout(connectionPolicy);
+      } else {
+        cxfEndpoint += "&synchronous=true";
+      }
+
+      CxfEndpoint consumerEndpoint = getContext().getEndpoint(cxfEndpoint, CxfEndpoint.class);
+      consumerEndpoint.setCxfConfigurer(compression.consumerConfigurer(nameService));
+
+      from(consumerEndpoint)
+          .routeId(nameService)
+          .process(metrics::trackTotal)
+          .process(exchange -> exchange.setProperty(PROXY_ROUTE_PROPERTY, routeVersions.activeRouteId(nameService)))
+          .choice()
+          // The consumer starts before the first version of the backend route is activated
+          .when(exchangeProperty(PROXY_ROUTE_PROPERTY).isNull())
+          .process(this::notActivated)
+          .otherwise()
+          .toD("direct:${exchangeProperty." + PROXY_ROUTE_PROPERTY + "}")
+          .end();
+
+      from("direct:"+nameService+"-applyXslt")
+          .routeId(nameService + "-applyXslt")
+          .process(exchange -> {
+            long start = System.nanoTime();
+            support.getTemplateCache().transform(nameService, exchange);
+            metrics.recordTransform(System.nanoTime() - start);
+          })
+          .log("Mensaje transformado: ${body}");
     }
 
-    var xsltPath = String.format("%s%s.xslt", XSTL_DIRECTORY, nameService);
-    var xsltEndpoint = String.format("xslt:file:%s", xsltPath);
+    BackendConnectionPools connectionPools = support.getConnectionPools();
+    BackendConnectionPools.BackendPool backendPool = connectionPools.register(nameService, host, port);
+    // Camel caches endpoints by URI, so the name of the service makes this endpoint and its client its own
+    // instead of sharing them with the other services of the same backend URL. The proxy mode is part of the URI
+    // too, so a new version with another mode does not change the endpoint of the version it replaces
+    CxfEndpoint backendEndpoint = getContext().getEndpoint(
+        String.format("cxf:%s://%s:%s%s?dataFormat=MESSAGE&synchronous=%s&properties.proxyService=%s", protocol, host,
+            port, path, !asyncProxy, nameService), CxfEndpoint.class);
+    backendEndpoint.setCxfConfigurer(compression.backendConfigurer(nameService,
+        connectionPools.configurer(connectionPolicy)));
 
-    from(cxfEndpoint)
-        .routeId(nameService)
+    ResponseCache responseCache = support.getResponseCache();
+    RequestCoalescer requestCoalescer = support.getRequestCoalescer();
+    BackendCircuitBreakers.CircuitBreaker circuitBreaker =
+        support.getCircuitBreakers().register(nameService, circuitBreakerPolicy);
+    from("direct:" + versionRouteId)
+        .routeId(versionRouteId)
+        // Identical requests already in flight wait for the response of the first one instead of calling the backend
+        .process(requestCoalescer.joiner(nameService, singleFlight))
+        .filter(exchange -> !requestCoalescer.isCoalesced(exchange))
         .choice()
-        .when().method(ConditionBean.class, "isApplyTransformation")
+        .when(exchange -> support.getConditionBean().isApplyTransformation(nameService))
         .to("direct:"+nameService+"-applyXslt")
         .log("Mensaje transformado: ${body}")
         .otherwise()
         .log("No se aplica transformación XSLT")
         .end()
-        .to(String.format("cxf:%s://%s:%s%s?dataFormat=MESSAGE", protocol, host, port, path));
+        .choice()
+        .when(exchange -> responseCache.lookup(nameService, responseCachePolicy, exchange))
+        .log(LoggingLevel.DEBUG, "Respuesta obtenida de la caché")
+        .when(exchange -> !circuitBreaker.tryAcquire(exchange))
+        .process(circuitBreaker::reject)
+        .otherwise()
+        .process(exchange -> {
+          backendPool.track(exchange);
+          metrics.startBackend(exchange);
+        })
+        .to(backendEndpoint)
+        .process(metrics::stopBackend)
+        .process(circuitBreaker::inspect)
+        .process(responseCache::store)
+        .end()
+        .process(requestCoalescer::complete)
+        .end();
+  }
 
-    from("direct:"+nameService+"-applyXslt")
-        .routeId(nameService + "-applyXslt")
-        .toD(xsltEndpoint+"?failOnNullBody=false")
-        .log("Mensaje transformado: ${body}");
+  /**
+   * This method answers with a SOAP fault and HTTP 503 a message received before the service has an active
+   * backend route, so the client can retry instead of getting an error about a missing direct endpoint.
+   *
+   * @param exchange the exchange received by the CXF consumer
+   */
+  private void notActivated(Exchange exchange) {
+    log.warning("Mensaje de " + nameService + " recibido antes de activar su ruta");
+    exchange.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, 503);
+    exchange.getMessage().setBody(
+        "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body><soap:Fault>"
+            + "<faultcode>soap:Server</faultcode>"
+            + "<faultstring>Servicio " + nameService + " no disponible: la ruta se está iniciando</faultstring>"
+            + "</soap:Fault></soap:Body></soap:Envelope>");
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,345 @@
+package org.acme.service;
+
+import com.mongodb.client.MongoClient;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import lombok.extern.java.Log;
+import org.acme.DTOs.ArtifactVersion;
+
+/**
+ * This class is responsible for storing the uploaded WSDL and XSLT files, keyed by the SHA-256 hash of their content.
+ * Each upload of a service adds a version to its history, except when it is identical to the current version,
+ * and identical contents are stored once whatever the service they belong to.
+ * The backing store is chosen with ARTIFACT_STORE: local, a directory with memory-mapped reads, or gridfs, which is
+ * shared by every replica. The current version of each service is cached for ARTIFACT_REF_TTL seconds, so the
+ * uploads of another replica are seen within that time, and only one caller reads it again when it expires.
+ * It is annotated with @ApplicationScoped, meaning a single instance will be created for the entire application.
+ */
+@ApplicationScoped
+@Log
+public class ArtifactRepository {
+
+  public static final String WSDL = "wsdl";
+  public static final String XSLT = "xslt";
+
+  private static final Pattern VALID_NAME = Pattern.compile("[A-Za-z0-9._-]+");
+  private static final int MAX_APPEND_ATTEMPTS = 5;
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+  String storeType = System.getenv().getOrDefault("ARTIFACT_STORE", "local");
+  String directory = System.getenv().getOrDefault("ARTIFACT_DIRECTORY", "artifacts");
+  String database = System.getenv().getOrDefault("ARTIFACT_DATABASE", "Service");
+  long maxBytes = Long.parseLong(System.getenv().getOrDefault("ARTIFACT_MAX_BYTES", "20971520"));
+  long refTtl = Long.parseLong(System.getenv().getOrDefault("ARTIFACT_REF_TTL", "5")) * 1000;
+
+  @Inject
+  MongoClient mongoClient;
+
+  private volatile ArtifactStore store;
+  private final ReentrantLock storeLock = new ReentrantLock();
+  private final Map<String, CachedRef> currentVersions = new ConcurrentHashMap<>();
+  private final Map<String, CompletableFuture<Optional<ArtifactVersion>>> refreshes = new ConcurrentHashMap<>();
+
+  /**
+   * This method stores a new version of an artifact.
+   * If the content is identical to the current version, no version is added and the current one is returned.
+   *
+   * @param kind        the kind of artifact, wsdl or xslt
+   * @param nameService the name of the service
+   * @param content     the content of the file
+   * @return the stored version
+   * @throws IOException if the artifact cannot be written
+   */
+  public ArtifactVersion put(String kind, String nameService, byte[] content) throws IOException {
+    return put(kind, nameService, new ByteArrayInputStream(content), null);
+  }
+
+  /**
+   * This method stores a new version of an artifact, streaming its content to a staging file while the SHA-256
+   * hash is computed, so the file is never held in the heap. The stream is read to its end but not closed.
+   * If the content is identical to the current version, no version is added and the current one is returned.
+   *
+   * @param kind           the kind of artifact, wsdl or xslt
+   * @param nameService    the name of the service
+   * @param content        the content of the file
+   * @param expectedSha256 the SHA-256 hash sent by the client, checked when it is not null or blank
+   * @return the stored version
+   * @throws IOException              if the artifact cannot be written
+   * @throws IllegalArgumentException if the kind or the name is not valid, the file is larger than
+   *                                  ARTIFACT_MAX_BYTES or its hash is not the expected one
+   */
+  public ArtifactVersion put(String kind, String nameService, InputStream content, String expectedSha256)
+      throws IOException {
+    return put(kind, nameService, content, expectedSha256, null);
+  }
+
+  /**
+   * This method stores a new version of an artifact once a validator has accepted its content.
+   * The validator runs on the staged file after the hash is checked and before anything is stored, so a rejected
+   * file never becomes a version.
+   *
+   * @param kind           the kind of artifact, wsdl or xslt
+   * @param nameService    the name of the service
+   * @param content        the content of the file
+   * @param expectedSha256 the SHA-256 hash sent by the client, checked when it is not null or blank
+   * @param validator      the check of the content, may be null
+   * @return the stored version
+   * @throws IOException              if the artifact cannot be written
+   * @throws IllegalArgumentException if the kind or the name is not valid, the file is larger than
+   *                                  ARTIFACT_MAX_BYTES, its hash is not the expected one or the validator rejects it
+   */
+  public ArtifactVersion put(String kind, String nameService, InputStream content, String expectedSha256,
+                             Validator validator) throws IOException {
+    validate(kind, nameService);
+    Path staged = Files.createTempFile(Files.createDirectories(Path.of(directory, "staging")), nameService, ".upload");
+    try {
+      MessageDigest digest = newDigest();
+      long size = 0;
+      try (OutputStream out = Files.newOutputStream(staged)) {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+          size += read;
+          if (size > maxBytes) {
+            throw new IllegalArgumentException("El archivo de " + nameService + " supera el tamaño máximo de "
+                + maxBytes + " bytes");
+          }
+          digest.update(buffer, 0, read);
+          out.write(buffer, 0, read);
+        }
+      }
+      String hash = HexFormat.of().formatHex(digest.digest());
+      if (expectedSha256 != null && !expectedSha256.isBlank() && !expectedSha256.trim().equalsIgnoreCase(hash)) {
+        throw new IllegalArgumentException("El checksum SHA-256 de " + nameService + " no coincide: se recibió "
+            + hash + " y se esperaba " + expectedSha256.trim());
+      }
+      if (validator != null) {
+        validator.validate(staged, hash);
+      }
+      ArtifactStore artifactStore = getStore();
+      artifactStore.write(hash, staged);
+      return addVersion(artifactStore, kind, nameService, hash, size);
+    } finally {
+      Files.deleteIfExists(staged);
+    }
+  }
+
+  private ArtifactVersion addVersion(ArtifactStore artifactStore, String kind, String nameService, String hash,
+                                     long size) throws IOException {
+    // Another replica may take the same version number; the history is read again and the next number is tried
+    for (int attempt = 0; attempt < MAX_APPEND_ATTEMPTS; attempt++) {
+      List<ArtifactVersion> history = artifactStore.history(kind, nameService);
+      ArtifactVersion last = history.isEmpty() ? null : history.get(history.size() - 1);
+      if (last != null && last.getHash().equals(hash)) {
+        log.info("Artefacto " + kind + " de " + nameService + " sin cambios (" + hash + ")");
+        cacheCurrent(kind, nameService, Optional.of(last));
+        return last;
+      }
+      ArtifactVersion version = new ArtifactVersion(kind, nameService, last != null ? last.getVersion() + 1 : 1,
+          hash, size, System.currentTimeMillis());
+      if (artifactStore.append(version)) {
+        log.info("Artefacto " + kind + " de " + nameService + " guardado como versión " + version.getVersion()
+            + " (" + hash + ")");
+        cacheCurrent(kind, nameService, Optional.of(version));
+        return version;
+      }
+    }
+    throw new IOException("No se pudo registrar la versión del artefacto " + kind + " de " + nameService);
+  }
+
+  /**
+   * This method returns the current version of an artifact, which is the last one uploaded.
+   *
+   * @param kind        the kind of artifact, wsdl or xslt
+   * @param nameService the name of the service
+   * @return an Optional containing the current version, or an empty Optional if nothing was uploaded
+   */
+  public Optional<ArtifactVersion> current(String kind, String nameService) {
+    if (nameService == null || !VALID_NAME.matcher(nameService).matches()) {
+      return Optional.empty();
+    }
+    String key = kind + "/" + nameService;
+    CachedRef cached = currentVersions.get(key);
+    if (cached != null && System.currentTimeMillis() < cached.expiresAt) {
+      return cached.version;
+    }
+
+    // A single caller reads the history when the entry expires; the others keep the expired version meanwhile,
+    // or wait for that read when there is none
+    CompletableFuture<Optional<ArtifactVersion>> refresh = new CompletableFuture<>();
+    CompletableFuture<Optional<ArtifactVersion>> running = refreshes.putIfAbsent(key, refresh);
+    if (running != null) {
+      return cached != null ? cached.version : running.join();
+    }
+    try {
+      List<ArtifactVersion> history = getStore().history(kind, nameService);
+      Optional<ArtifactVersion> current = cacheCurrent(kind, nameService,
+          history.isEmpty() ? Optional.empty() : Optional.of(history.get(history.size() - 1)));
+      refresh.complete(current);
+      return current;
+    } catch (IOException e) {
+      log.warning("No se pudo leer la versión del artefacto " + key + ": " + e.getMessage());
+      Optional<ArtifactVersion> current = cached != null ? cached.version : Optional.empty();
+      refresh.complete(current);
+      return current;
+    } catch (RuntimeException e) {
+      refresh.completeExceptionally(e);
+      throw e;
+    } finally {
+      refreshes.remove(key, refresh);
+    }
+  }
+
+  /**
+   * This method returns every version of an artifact, oldest first.
+   *
+   * @param kind        the kind of artifact, wsdl or xslt
+   * @param nameService the name of the service
+   * @return the versions, empty if nothing was uploaded
+   * @throws IOException if the history cannot be read
+   */
+  public List<ArtifactVersion> history(String kind, String nameService) throws IOException {
+    validate(kind, nameService);
+    return getStore().history(kind, nameService);
+  }
+
+  /**
+   * This method returns the services that have at least one version of a kind of artifact.
+   *
+   * @param kind the kind of artifact, wsdl or xslt
+   * @return the names of the services
+   * @throws IOException if the store cannot be read
+   */
+  public Set<String> names(String kind) throws IOException {
+    return getStore().names(kind);
+  }
+
+  /**
+   * This method reads the content of a version.
+   *
+   * @param version the version
+   * @return a read-only buffer with the content
+   * @throws IOException if the content cannot be read
+   */
+  public ByteBuffer read(ArtifactVersion version) throws IOException {
+    return getStore().read(version.getHash());
+  }
+
+  /**
+   * This method returns a local file with the content of a version, for the consumers that need a URL.
+   *
+   * @param version the version
+   * @return the local file
+   * @throws IOException if the content cannot be copied to the local disk
+   */
+  public Path localFile(ArtifactVersion version) throws IOException {
+    return getStore().localFile(version.getHash());
+  }
+
+  /**
+   * This method returns the maximum size of an artifact, set with ARTIFACT_MAX_BYTES.
+   *
+   * @return the maximum size in bytes
+   */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  private Optional<ArtifactVersion> cacheCurrent(String kind, String nameService, Optional<ArtifactVersion> version) {
+    currentVersions.put(kind + "/" + nameService, new CachedRef(version, System.currentTimeMillis() + refTtl));
+    return version;
+  }
+
+  private ArtifactStore getStore() {
+    ArtifactStore current = store;
+    if (current == null) {
+      storeLock.lock();
+      try {
+        current = store;
+        if (current == null) {
+          current = createStore();
+          store = current;
+        }
+      } finally {
+        storeLock.unlock();
+      }
+    }
+    return current;
+  }
+
+  private ArtifactStore createStore() {
+    try {
+      if ("gridfs".equalsIgnoreCase(storeType)) {
+        log.info("Artefactos guardados en GridFS, base de datos " + database);
+        return new GridFsArtifactStore(mongoClient.getDatabase(database), Path.of(directory, "cache"));
+      }
+      log.info("Artefactos guardados en el directorio " + Path.of(directory).toAbsolutePath());
+      return new LocalArtifactStore(Path.of(directory));
+    } catch (IOException e) {
+      throw new UncheckedIOException("No se pudo abrir el almacén de artefactos", e);
+    }
+  }
+
+  private static void validate(String kind, String nameService) {
+    if (!WSDL.equals(kind) && !XSLT.equals(kind)) {
+      throw new IllegalArgumentException("Tipo de artefacto no válido: " + kind);
+    }
+    if (nameService == null || !VALID_NAME.matcher(nameService).matches()) {
+      throw new IllegalArgumentException("Nombre de servicio no válido: " + nameService);
+    }
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * A check of an uploaded file, run before it is stored.
+   */
+  @FunctionalInterface
+  public interface Validator {
+
+    /**
+     * This method checks an uploaded file.
+     *
+     * @param staged the uploaded file
+     * @param hash   the SHA-256 hash of the file
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file must be rejected
+     */
+    void validate(Path staged, String hash) throws IOException;
+  }
+
+  private static final class CachedRef {
+    private final Optional<ArtifactVersion> version;
+    private final long expiresAt;
+
+    private CachedRef(Optional<ArtifactVersion> version, long expiresAt) {
+      this.version = version;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package org.acme.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import org.acme.DTOs.ArtifactVersion;
+
+/**
+ * This interface is implemented by the backing stores of the ArtifactRepository.
+ * Contents are stored once per SHA-256 hash, and each service name keeps the ordered list of the versions
+ * that were uploaded for it.
+ */
+public interface ArtifactStore {
+
+  /**
+   * This method returns whether a content is already stored.
+   *
+   * @param hash the SHA-256 hash of the content
+   * @return true if the content exists
+   * @throws IOException if the store cannot be read
+   */
+  boolean contains(String hash) throws IOException;
+
+  /**
+   * This method stores a content under its hash. Writing a hash that already exists has no effect.
+   * The staged file may be moved by the store, and is deleted by the caller if it is still there.
+   *
+   * @param hash   the SHA-256 hash of the content
+   * @param staged the file where the content was streamed
+   * @throws IOException if the content cannot be written
+   */
+  void write(String hash, Path staged) throws IOException;
+
+  /**
+   * This method reads a stored content.
+   *
+   * @param hash the SHA-256 hash of the content
+   * @return a read-only buffer with the content
+   * @throws IOException if the content does not exist or cannot be read
+   */
+  ByteBuffer read(String hash) throws IOException;
+
+  /**
+   * This method returns a local file with a stored content, for the consumers that need a URL, such as CXF.
+   * Since the file is named after the hash, it never has to be refreshed.
+   *
+   * @param hash the SHA-256 hash of the content
+   * @return the local file
+   * @throws IOException if the content does not exist or cannot be copied to the local disk
+   */
+  Path localFile(String hash) throws IOException;
+
+  /**
+   * This method returns the versions uploaded for a service, oldest first.
+   *
+   * @param kind        the kind of artifact, wsdl or xslt
+   * @param nameService the name of the service
+   * @return the versions, empty if nothing was uploaded
+   * @throws IOException if the store cannot be read
+   */
+  List<ArtifactVersion> history(String kind, String nameService) throws IOException;
+
+  /**
+   * This method adds a version to the history of a service.
+   *
+   * @param version the new version, numbered after the last one
+   * @return false if another upload already took that version number
+   * @throws IOException if the history cannot be written
+   */
+  boolean append(ArtifactVersion version) throws IOException;
+
+  /**
+   * This method returns the services that have at least one version of a kind of artifact.
+   *
+   * @param kind the kind of artifact, wsdl or xslt
+   * @return the names of the services
+   * @throws IOException if the store cannot be read
+   */
+  Set<String> names(String kind) throws IOException;
+}
@@ -0,0 +1,334 @@
+package org.acme.service;
+
+import io.smallrye.mutiny.Multi;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import javax.xml.transform.Templates;
+import lombok.extern.java.Log;
+import org.acme.DTOs.ArtifactVersion;
+import org.acme.DTOs.FormData;
+import org.acme.DTOs.UploadEntryResult;
+import org.acme.DTOs.UploadJob;
+import org.acme.configurations.AdminExecutor;
+
+/**
+ * This class is responsible for the bulk upload of WSDL and XSLT files in a zip archive.
+ * The archive is streamed to a temporary file while its SHA-256 hash is computed, and the caller gets a job id
+ * right away. The entries are then streamed one by one from the archive to their own temporary files, whose CRC-32
+ * is checked by the zip reader, and are stored, parsed and registered in parallel on the admin pool: a WSDL is
+ * indexed in the WsdlCatalog and its service is stored in Mongo, and an XSLT is precompiled and validated by the
+ * XsltTemplateCache before it is stored, then published to the running routes.
+ * The archive is limited to UPLOAD_MAX_ARCHIVE_BYTES, and its extracted entries to UPLOAD_MAX_EXTRACTED_BYTES in total.
+ * The jobs are kept in memory on the replica that received the archive for UPLOAD_JOB_RETENTION seconds.
+ * It is annotated with @ApplicationScoped, meaning a single instance will be created for the entire application.
+ */
+@ApplicationScoped
+@Log
+public class ArtifactUploadJobs {
+
+  public static final String RUNNING = "RUNNING";
+  public static final String COMPLETED = "COMPLETED";
+  public static final String FAILED = "FAILED";
+
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+  int parallelism = Integer.parseInt(System.getenv().getOrDefault("UPLOAD_PARALLELISM", "4"));
+  int maxEntries = Integer.parseInt(System.getenv().getOrDefault("UPLOAD_MAX_ENTRIES", "1000"));
+  long retention = Long.parseLong(System.getenv().getOrDefault("UPLOAD_JOB_RETENTION", "3600")) * 1000;
+  long maxArchiveBytes = Long.parseLong(System.getenv().getOrDefault("UPLOAD_MAX_ARCHIVE_BYTES", "104857600"));
+  long maxExtractedBytes = Long.parseLong(System.getenv().getOrDefault("UPLOAD_MAX_EXTRACTED_BYTES", "209715200"));
+
+  @Inject
+  ArtifactRepository artifactRepository;
+
+  @Inject
+  WsdlCatalog wsdlCatalog;
+
+  @Inject
+  XsltTemplateCache xsltTemplateCache;
+
+  @Inject
+  WsService wsService;
+
+  @Inject
+  AdminExecutor adminExecutor;
+
+  private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+  /**
+   * This method receives a zip archive and starts the job that stores and registers its files.
+   * The archive is copied before returning, because the upload stream is closed once the request ends.
+   *
+   * @param archive        the zip archive
+   * @param expectedSha256 the SHA-256 hash of the archive sent by the client, checked when it is not null or blank
+   * @return the new job
+   * @throws IOException              if the archive cannot be copied
+   * @throws IllegalArgumentException if the archive is larger than UPLOAD_MAX_ARCHIVE_BYTES or its hash is not the
+   *                                  expected one
+   */
+  public UploadJob submitArchive(InputStream archive, String expectedSha256) throws IOException {
+    jobs.values().removeIf(Job::isExpired);
+
+    Path staged = Files.createTempFile("upload-", ".zip");
+    Job job;
+    try {
+      MessageDigest digest = newDigest();
+      try (InputStream in = new DigestInputStream(archive, digest);
+           OutputStream out = Files.newOutputStream(staged)) {
+        copy(in, out, maxArchiveBytes, "El archivo supera el tamaño máximo de " + maxArchiveBytes + " bytes");
+      }
+      String hash = HexFormat.of().formatHex(digest.digest());
+      if (expectedSha256 != null && !expectedSha256.isBlank() && !expectedSha256.trim().equalsIgnoreCase(hash)) {
+        throw new IllegalArgumentException("El checksum SHA-256 del archivo no coincide: se recibió " + hash
+            + " y se esperaba " + expectedSha256.trim());
+      }
+      job = new Job(UUID.randomUUID().toString(), hash);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(staged);
+      throw e;
+    }
+    jobs.put(job.id, job);
+    log.info("Carga masiva " + job.id + " recibida (" + job.archiveSha256 + ")");
+
+    adminExecutor.submit(() -> extract(job, staged))
+        .onItem().transformToMulti(entries -> Multi.createFrom().iterable(entries))
+        .onItem().transformToUni(entry -> adminExecutor.submit(() -> register(entry))
+            .onFailure().recoverWithItem(e -> {
+              entry.delete();
+              return failed(entry.result, e);
+            }))
+        .merge(parallelism)
+        .subscribe().with(
+            job.entries::add,
+            job::fail,
+            job::complete);
+    return job.snapshot();
+  }
+
+  /**
+   * This method returns the progress of a job.
+   *
+   * @param jobId the id of the job
+   * @return an Optional containing the job, or an empty Optional if it does not exist or has expired
+   */
+  public Optional<UploadJob> get(String jobId) {
+    Job job = jobs.get(jobId);
+    return job != null && !job.isExpired() ? Optional.of(job.snapshot()) : Optional.empty();
+  }
+
+  /**
+   * Streams every WSDL and XSLT entry of the archive to its own temporary file.
+   * The entries that cannot be used are returned already failed. An entry larger than ARTIFACT_MAX_BYTES, or
+   * entries that add up to more than UPLOAD_MAX_EXTRACTED_BYTES, fail the whole job, so a compressed archive cannot
+   * fill the disk.
+   */
+  private List<StagedEntry> extract(Job job, Path staged) throws IOException {
+    List<StagedEntry> entries = new ArrayList<>();
+    long extracted = 0;
+    try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(staged))) {
+      ZipEntry zipEntry;
+      while ((zipEntry = zip.getNextEntry()) != null) {
+        String fileName = Path.of(zipEntry.getName()).getFileName().toString();
+        if (zipEntry.isDirectory() || fileName.startsWith(".")) {
+          continue;
+        }
+        if (entries.size() >= maxEntries) {
+          throw new IOException("El archivo supera el máximo de " + maxEntries + " entradas");
+        }
+        UploadEntryResult result = new UploadEntryResult(fileName, kindOf(fileName), null, 0, null, false, null);
+        job.total = entries.size() + 1;
+        if (result.getKind() == null) {
+          result.setMessage("Extensión no soportada, se esperaba .wsdl o .xslt");
+          entries.add(new StagedEntry(result, null));
+          continue;
+        }
+        result.setNameService(fileName.substring(0, fileName.lastIndexOf('.')));
+        Path file = Files.createTempFile("upload-entry-", "." + result.getKind());
+        try (OutputStream out = Files.newOutputStream(file)) {
+          long remaining = maxExtractedBytes - extracted;
+          long maxEntryBytes = artifactRepository.getMaxBytes();
+          extracted += remaining < maxEntryBytes
+              ? copy(zip, out, remaining, "El contenido del archivo supera el máximo de " + maxExtractedBytes + " bytes")
+              : copy(zip, out, maxEntryBytes, "El archivo " + fileName + " supera el tamaño máximo de "
+                  + maxEntryBytes + " bytes");
+        } catch (IOException | RuntimeException e) {
+          Files.deleteIfExists(file);
+          throw e;
+        }
+        entries.add(new StagedEntry(result, file));
+      }
+    } catch (IOException | RuntimeException e) {
+      for (StagedEntry entry : entries) {
+        entry.delete();
+      }
+      throw e;
+    } finally {
+      Files.deleteIfExists(staged);
+    }
+    return entries;
+  }
+
+  /**
+   * Stores an entry in the ArtifactRepository, then parses it and registers its service.
+   * An XSLT is precompiled before it is stored, in the same way as a single upload.
+   */
+  private UploadEntryResult register(StagedEntry entry) throws Exception {
+    UploadEntryResult result = entry.result;
+    if (entry.file == null) {
+      return result;
+    }
+    try {
+      String nameService = result.getNameService();
+      Templates[] templates = new Templates[1];
+      ArtifactRepository.Validator validator = ArtifactRepository.XSLT.equals(result.getKind())
+          ? (staged, hash) -> templates[0] = xsltTemplateCache.precompile(nameService, staged, hash)
+          : null;
+      ArtifactVersion version;
+      try (InputStream in = Files.newInputStream(entry.file)) {
+        version = artifactRepository.put(result.getKind(), nameService, in, null, validator);
+      }
+      result.setVersion(version.getVersion());
+      result.setHash(version.getHash());
+
+      if (templates[0] != null) {
+        xsltTemplateCache.publish(nameService, version, templates[0]);
+      } else {
+        if (wsdlCatalog.refresh(nameService) == null) {
+          return failed(result, new IllegalArgumentException("El WSDL no se pudo procesar"));
+        }
+        FormData formData = new FormData();
+        formData.setWsdlDetail(nameService);
+        wsService.createWs(formData);
+      }
+      result.setSuccess(true);
+      result.setMessage("versión " + version.getVersion() + " registrada");
+      return result;
+    } finally {
+      entry.delete();
+    }
+  }
+
+  /**
+   * Copies a stream and stops as soon as more than limit bytes were read.
+   *
+   * @return the number of bytes copied
+   */
+  private static long copy(InputStream in, OutputStream out, long limit, String tooLarge) throws IOException {
+    byte[] buffer = new byte[COPY_BUFFER_SIZE];
+    long size = 0;
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      size += read;
+      if (size > limit) {
+        throw new IllegalArgumentException(tooLarge);
+      }
+      out.write(buffer, 0, read);
+    }
+    return size;
+  }
+
+  private static UploadEntryResult failed(UploadEntryResult entry, Throwable error) {
+    entry.setSuccess(false);
+    entry.setMessage(error.getMessage());
+    return entry;
+  }
+
+  private static String kindOf(String fileName) {
+    String lowerCase = fileName.toLowerCase();
+    if (lowerCase.endsWith(".wsdl")) {
+      return ArtifactRepository.WSDL;
+    }
+    if (lowerCase.endsWith(".xslt") || lowerCase.endsWith(".xsl")) {
+      return ArtifactRepository.XSLT;
+    }
+    return null;
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final class StagedEntry {
+    private final UploadEntryResult result;
+    private final Path file;
+
+    private StagedEntry(UploadEntryResult result, Path file) {
+      this.result = result;
+      this.file = file;
+    }
+
+    private void delete() {
+      if (file != null) {
+        try {
+          Files.deleteIfExists(file);
+        } catch (IOException e) {
+          log.warning("No se pudo eliminar el archivo temporal " + file + ": " + e.getMessage());
+        }
+      }
+    }
+  }
+
+  private final class Job {
+    private final String id;
+    private final String archiveSha256;
+    private final long createdAt = System.currentTimeMillis();
+    private final Queue<UploadEntryResult> entries = new ConcurrentLinkedQueue<>();
+    private volatile int total;
+    private volatile String status = RUNNING;
+    private volatile Long finishedAt;
+    private volatile String error;
+
+    private Job(String id, String archiveSha256) {
+      this.id = id;
+      this.archiveSha256 = archiveSha256;
+    }
+
+    private void complete() {
+      finishedAt = System.currentTimeMillis();
+      status = COMPLETED;
+      log.info("Carga masiva " + id + " terminada: " + entries.size() + " archivos en " + (finishedAt - createdAt)
+          + " ms");
+    }
+
+    private void fail(Throwable failure) {
+      error = failure.getMessage();
+      finishedAt = System.currentTimeMillis();
+      status = FAILED;
+      log.warning("Carga masiva " + id + " con error: " + failure.getMessage());
+    }
+
+    private boolean isExpired() {
+      return finishedAt != null && System.currentTimeMillis() - finishedAt > retention;
+    }
+
+    private UploadJob snapshot() {
+      List<UploadEntryResult> results = new ArrayList<>(entries);
+      int succeeded = (int) results.stream().filter(UploadEntryResult::isSuccess).count();
+      return new UploadJob(id, status, archiveSha256, total, succeeded, results.size() - succeeded, createdAt,
+          finishedAt, error, results);
+    }
+  }
+}
@@ -0,0 +1,140 @@
+package org.acme.service;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import org.acme.DTOs.ArtifactVersion;
+import org.bson.Document;
+
+/**
+ * This class stores the artifacts in Mongo, so every replica of the gateway sees the same versions.
+ * Each content is a GridFS file named after its hash, and the history of each service is kept in the
+ * artifactVersions collection, whose unique index on kind, nameService and version rejects two uploads
+ * that take the same version number.
+ * The contents that must be on disk for CXF are downloaded once to a local cache directory.
+ */
+public class GridFsArtifactStore implements ArtifactStore {
+
+  private final GridFSBucket bucket;
+  private final MongoCollection<Document> versions;
+  private final Path cacheDirectory;
+
+  /**
+   * Constructor for the GridFsArtifactStore class.
+   *
+   * @param database       the Mongo database of the store
+   * @param cacheDirectory the directory where the contents needed on disk are copied, created if it does not exist
+   * @throws IOException if the cache directory cannot be created
+   */
+  public GridFsArtifactStore(MongoDatabase database, Path cacheDirectory) throws IOException {
+    this.bucket = GridFSBuckets.create(database, "artifacts");
+    this.versions = database.getCollection("artifactVersions");
+    this.versions.createIndex(Indexes.ascending("kind", "nameService", "version"), new IndexOptions().unique(true));
+    this.cacheDirectory = Files.createDirectories(cacheDirectory);
+  }
+
+  @Override
+  public boolean contains(String hash) {
+    return bucket.find(Filters.eq("filename", hash)).first() != null;
+  }
+
+  @Override
+  public void write(String hash, Path staged) throws IOException {
+    if (contains(hash)) {
+      return;
+    }
+    try (InputStream in = Files.newInputStream(staged)) {
+      bucket.uploadFromStream(hash, in);
+    }
+  }
+
+  @Override
+  public ByteBuffer read(String hash) throws IOException {
+    Path cached = cacheDirectory.resolve(hash);
+    if (Files.isRegularFile(cached)) {
+      return ByteBuffer.wrap(Files.readAllBytes(cached)).asReadOnlyBuffer();
+    }
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    download(hash, content);
+    return ByteBuffer.wrap(content.toByteArray()).asReadOnlyBuffer();
+  }
+
+  @Override
+  public Path localFile(String hash) throws IOException {
+    Path file = cacheDirectory.resolve(hash);
+    if (Files.isRegularFile(file)) {
+      return file;
+    }
+    Path temporary = Files.createTempFile(cacheDirectory, hash, ".tmp");
+    try {
+      try (OutputStream out = Files.newOutputStream(temporary)) {
+        download(hash, out);
+      }
+      Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+    return file;
+  }
+
+  @Override
+  public List<ArtifactVersion> history(String kind, String nameService) {
+    List<ArtifactVersion> history = new ArrayList<>();
+    versions.find(Filters.and(Filters.eq("kind", kind), Filters.eq("nameService", nameService)))
+        .sort(Sorts.ascending("version"))
+        .forEach(document -> history.add(new ArtifactVersion(kind, nameService,
+            document.getInteger("version"), document.getString("hash"),
+            document.getLong("size"), document.getLong("createdAt"))));
+    return history;
+  }
+
+  @Override
+  public boolean append(ArtifactVersion version) {
+    try {
+      versions.insertOne(new Document("kind", version.getKind())
+          .append("nameService", version.getNameService())
+          .append("version", version.getVersion())
+          .append("hash", version.getHash())
+          .append("size", version.getSize())
+          .append("createdAt", version.getCreatedAt()));
+      return true;
+    } catch (MongoWriteException e) {
+      if (e.getError().getCategory() == ErrorCategory.DUPLICATE_KEY) {
+        return false;
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public Set<String> names(String kind) {
+    return versions.distinct("nameService", Filters.eq("kind", kind), String.class).into(new TreeSet<>());
+  }
+
+  private void download(String hash, OutputStream out) throws IOException {
+    if (!contains(hash)) {
+      throw new NoSuchFileException("El artefacto no existe en GridFS: " + hash);
+    }
+    bucket.downloadToStream(hash, out);
+  }
+}
@@ -0,0 +1,148 @@
+package org.acme.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import org.acme.DTOs.ArtifactVersion;
+
+/**
+ * This class stores the artifacts on a local directory.
+ * Each content is a file named after its hash under blobs/, moved into place from the file it was streamed to,
+ * and is read through a read-only memory mapping, so reads do not copy the file into the heap.
+ * The history of each service is a text file under refs/{kind}/, one line per version, guarded by a file lock
+ * so several processes can share the directory.
+ */
+public class LocalArtifactStore implements ArtifactStore {
+
+  private static final String HISTORY_EXTENSION = ".versions";
+
+  private final Path blobs;
+  private final Path refs;
+  // FileLock is held per process, so the threads of this process also take this lock
+  private final ReentrantLock historyLock = new ReentrantLock();
+
+  /**
+   * Constructor for the LocalArtifactStore class.
+   *
+   * @param root the directory of the store, created if it does not exist
+   * @throws IOException if the directory cannot be created
+   */
+  public LocalArtifactStore(Path root) throws IOException {
+    this.blobs = Files.createDirectories(root.resolve("blobs"));
+    this.refs = Files.createDirectories(root.resolve("refs"));
+  }
+
+  @Override
+  public boolean contains(String hash) {
+    return Files.isRegularFile(blobFile(hash));
+  }
+
+  @Override
+  public void write(String hash, Path staged) throws IOException {
+    Path file = blobFile(hash);
+    if (Files.isRegularFile(file)) {
+      return;
+    }
+    Files.createDirectories(file.getParent());
+    Files.move(staged, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  @Override
+  public ByteBuffer read(String hash) throws IOException {
+    try (FileChannel channel = FileChannel.open(blobFile(hash), StandardOpenOption.READ)) {
+      // The mapping stays valid after the channel is closed
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  @Override
+  public Path localFile(String hash) throws IOException {
+    Path file = blobFile(hash);
+    if (!Files.isRegularFile(file)) {
+      throw new NoSuchFileException(file.toString());
+    }
+    return file;
+  }
+
+  @Override
+  public List<ArtifactVersion> history(String kind, String nameService) throws IOException {
+    Path file = historyFile(kind, nameService);
+    if (!Files.isRegularFile(file)) {
+      return List.of();
+    }
+    return parse(kind, nameService, Files.readAllLines(file, StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public boolean append(ArtifactVersion version) throws IOException {
+    Path file = historyFile(version.getKind(), version.getNameService());
+    Files.createDirectories(file.getParent());
+    historyLock.lock();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+         FileLock ignored = channel.lock()) {
+      String existing = new String(Channels.newInputStream(channel).readAllBytes(), StandardCharsets.UTF_8);
+      List<ArtifactVersion> versions = parse(version.getKind(), version.getNameService(), existing.lines().toList());
+      if (!versions.isEmpty() && versions.get(versions.size() - 1).getVersion() >= version.getVersion()) {
+        return false;
+      }
+      String line = version.getVersion() + " " + version.getHash() + " " + version.getSize() + " "
+          + version.getCreatedAt() + "\n";
+      channel.write(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)), channel.size());
+      channel.force(false);
+      return true;
+    } finally {
+      historyLock.unlock();
+    }
+  }
+
+  @Override
+  public Set<String> names(String kind) throws IOException {
+    Set<String> names = new TreeSet<>();
+    Path directory = refs.resolve(kind);
+    if (!Files.isDirectory(directory)) {
+      return names;
+    }
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + HISTORY_EXTENSION)) {
+      files.forEach(file -> {
+        String fileName = file.getFileName().toString();
+        names.add(fileName.substring(0, fileName.length() - HISTORY_EXTENSION.length()));
+      });
+    }
+    return names;
+  }
+
+  private Path blobFile(String hash) {
+    return blobs.resolve(hash.substring(0, 2)).resolve(hash);
+  }
+
+  private Path historyFile(String kind, String nameService) {
+    return refs.resolve(kind).resolve(nameService + HISTORY_EXTENSION);
+  }
+
+  private static List<ArtifactVersion> parse(String kind, String nameService, List<String> lines) {
+    List<ArtifactVersion> versions = new ArrayList<>();
+    for (String line : lines) {
+      String[] fields = line.trim().split(" ");
+      if (fields.length == 4) {
+        versions.add(new ArtifactVersion(kind, nameService, Integer.parseInt(fields[0]), fields[1],
+            Long.parseLong(fields[2]), Long.parseLong(fields[3])));
+      }
+    }
+    return versions;
+  }
+}
@@ -0,0 +1,142 @@
+package org.acme.service;
+
+import io.quarkus.mongodb.reactive.ReactiveMongoClient;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.Optional;
+import lombok.extern.java.Log;
+import org.acme.configurations.AdminExecutor;
+import org.acme.DTOs.FormData;
+import org.acme.DTOs.ModifyDataHots;
+import org.acme.DTOs.WserviceDTO;
+import org.acme.entity.VariableNameEntity;
+import org.bson.Document;
+
+/**
+ * This class is the non-blocking variant of WsService.
+ * It uses the reactive Mongo client, so Mongo latency does not hold a worker thread while waiting.
+ * It is annotated with @ApplicationScoped, meaning a single instance will be created for the entire application.
+ * It is also annotated with @Log, which is a Lombok annotation that provides a logger.
+ */
+@ApplicationScoped
+@Log
+public class ReactiveWsService {
+
+  @Inject
+  UrlParser urlParser;
+
+  @Inject
+  WsdlHostInfo wsdlHostInfo;
+
+  @Inject
+  ReactiveMongoClient reactiveMongoClient;
+
+  @Inject
+  ServiceRepository serviceRepository;
+
+  @Inject
+  AdminExecutor adminExecutor;
+
+  /**
+   * This method is used to create a new web service.
+   * The host is read from the WSDL file of the service on the admin pool, and the new service is stored unless it
+   * already exists.
+   *
+   * @param formData the form data containing the details of the new web service
+   * @return a Uni that completes when the service is stored
+   */
+  public Uni<Void> createWs(FormData formData) {
+    return serviceRepository.findByNameReactive(formData.getWsdlDetail())
+        .chain(existing -> {
+          if (existing.isPresent()) {
+            log.info("El servicio ya existe");
+            return Uni.createFrom().voidItem();
+          }
+
+          // Reading the WSDL is blocking, so it runs on the admin pool instead of the Mongo driver thread
+          return adminExecutor.submit(() -> urlParser.parseUrl(wsdlHostInfo.getHost(formData.getWsdlDetail())))
+              .chain(net -> {
+                ModifyDataHots modifyDataHots = new ModifyDataHots();
+                modifyDataHots.setHostService(net.getHost());
+                modifyDataHots.setPortService(net.getPort());
+                modifyDataHots.setProtocolService(net.getProtocol());
+                modifyDataHots.setPathService(net.getPath());
+                modifyDataHots.setNameService(formData.getWsdlDetail());
+                return serviceRepository.insertReactive(toDocument(modifyDataHots));
+              });
+        });
+  }
+
+  /**
+   * This method is used to retrieve the web service with a specific name.
+   *
+   * @param nameService the name of the service to retrieve
+   * @return a Uni with an Optional containing the WserviceDTO if found, or an empty Optional otherwise
+   */
+  public Uni<Optional<WserviceDTO>> getAllWs(String nameService) {
+    return serviceRepository.findByNameReactive(nameService)
+        .map(result -> result.map(document -> new WserviceDTO(
+            document.getString("protocolService"),
+            document.getString("hostService"),
+            document.getString("portService"),
+            document.getString("pathService"))));
+  }
+
+  /**
+   * This method is used to modify a web service by its name, creating it if it does not exist.
+   * The policies of the request are stored by DynamicRoutesManager once its route is running with them.
+   *
+   * @param modifyDataHots the data containing the new details of the web service
+   * @return a Uni that completes when the service is stored
+   */
+  public Uni<Void> modifyWsByName(ModifyDataHots modifyDataHots) {
+    return serviceRepository.upsertReactive(modifyDataHots.getNameService(), toDocument(modifyDataHots));
+  }
+
+  /**
+   * This method is used to save a variable, updating it if it already exists.
+   *
+   * @param variableNameEntity the VariableNameEntity to save
+   * @return a Uni that completes when the variable is stored
+   */
+  public Uni<Void> saveVariable(VariableNameEntity variableNameEntity) {
+    Document query = new Document("nameService", variableNameEntity.getNameService());
+    log.info("Query: " + query);
+    return getCollectionVariable().find(query).collect().first()
+        .chain(result -> {
+          if (result != null) {
+            return getCollectionVariable().updateOne(query, new Document("$set", new Document()
+                .append("nameService", variableNameEntity.getNameService()))).replaceWithVoid();
+          }
+          return getCollectionVariable().insertOne(new Document()
+              .append("nameService", variableNameEntity.getNameService())).replaceWithVoid();
+        });
+  }
+
+  /**
+   * This method is used to retrieve the first variable name.
+   *
+   * @return a Uni with the first variable name, or null if there is none
+   */
+  public Uni<String> getVariable() {
+    return getCollectionVariable().find().collect().first()
+        .map(firstDocument -> firstDocument != null && firstDocument.containsKey("nameService")
+            ? firstDocument.getString("nameService")
+            : null);
+  }
+
+  private Document toDocument(ModifyDataHots modifyDataHots) {
+    return new Document()
+        .append("nameService", modifyDataHots.getNameService())
+        .append("hostService", modifyDataHots.getHostService())
+        .append("portService", modifyDataHots.getPortService())
+        .append("protocolService", modifyDataHots.getProtocolService())
+        .append("pathService", modifyDataHots.getPathService());
+  }
+
+  private ReactiveMongoCollection<Document> getCollectionVariable() {
+    return reactiveMongoClient.getDatabase("variable").getCollection("variable");
+  }
+}
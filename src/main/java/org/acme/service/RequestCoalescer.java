@@ -0,0 +1,263 @@
+package org.acme.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.java.Log;
+import org.acme.DTOs.SingleFlightStats;
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.Exchange;
+import org.apache.camel.support.AsyncProcessorSupport;
+import org.apache.camel.support.SynchronizationAdapter;
+import org.bson.Document;
+
+/**
+ * This class is responsible for the single-flight mode of the proxy routes.
+ * When it is enabled for a service, the first exchange of a request becomes the leader and goes through the XSLT
+ * transformation and the backend call, while the identical exchanges that arrive before it finishes wait for its
+ * response and each get their own copy, with the status code, the Content-Type and the other scalar headers of the
+ * response of the leader.
+ * Requests are identical when their operation and SoapRequestDigest match. The digest is taken from the request as
+ * the client sent it, before the XSLT transformation, so the transformation is also shared; the ResponseCache uses
+ * the same digest on the transformed request, which is the one sent to the backend, so the two keys differ.
+ * Requests that carry the credentials of their caller are never coalesced.
+ * Unlike the ResponseCache nothing is kept once the leader finishes, so no stale response is ever returned.
+ * This class is annotated with @ApplicationScoped, meaning a single instance will be created for the entire application.
+ */
+@ApplicationScoped
+@Log
+public class RequestCoalescer {
+
+  private static final String LEADER_KEY_PROPERTY = "proxySingleFlightKey";
+  private static final String COALESCED_PROPERTY = "proxySingleFlightCoalesced";
+
+  boolean enabled = Boolean.parseBoolean(System.getenv().getOrDefault("SINGLE_FLIGHT_ENABLED", "false"));
+  long maxWait = Long.parseLong(System.getenv().getOrDefault("SINGLE_FLIGHT_MAX_WAIT", "30000"));
+
+  private final Map<String, CompletableFuture<SharedResponse>> inFlight = new ConcurrentHashMap<>();
+  private final Map<String, ServiceCounters> counters = new ConcurrentHashMap<>();
+
+  /**
+   * This method returns whether the single-flight mode is enabled for a service.
+   *
+   * @param requested the value sent in the request, may be null
+   * @param stored    the service document stored in Mongo, may be empty
+   * @return the value sent, else the stored one, else SINGLE_FLIGHT_ENABLED
+   */
+  public boolean resolve(Boolean requested, Optional<Document> stored) {
+    Boolean singleFlight = requested != null
+        ? requested
+        : stored.map(document -> document.getBoolean("singleFlight")).orElse(null);
+    return singleFlight != null ? singleFlight : enabled;
+  }
+
+  /**
+   * This method returns the processor that joins an exchange to the identical call already in flight, if there is one.
+   * If there is none, the exchange becomes the leader and must reach complete, or fail, to release its followers.
+   * A follower resumes when the leader finishes, with a copy of its response, and is then reported by isCoalesced.
+   * With the asyncProxy connection policy the consumer suspends the exchange, so a follower does not hold a thread
+   * while it waits; in the default synchronous mode the CXF consumer thread of the follower stays blocked until
+   * the leader finishes. A follower that waits longer than SINGLE_FLIGHT_MAX_WAIT gives up and calls the backend
+   * itself.
+   *
+   * @param nameService  the name of the service
+   * @param singleFlight whether the mode is enabled for the service
+   * @return the processor for the versioned route of the service
+   */
+  public AsyncProcessor joiner(String nameService, boolean singleFlight) {
+    return new AsyncProcessorSupport() {
+      @Override
+      public boolean process(Exchange exchange, AsyncCallback callback) {
+        CompletableFuture<SharedResponse> leader = singleFlight ? join(nameService, exchange) : null;
+        if (leader == null) {
+          callback.done(true);
+          return true;
+        }
+        if (leader.isDone()) {
+          resume(nameService, exchange, leader);
+          callback.done(true);
+          return true;
+        }
+        leader.copy()
+            .orTimeout(maxWait, TimeUnit.MILLISECONDS)
+            .whenComplete((response, error) -> {
+              resume(nameService, exchange, error instanceof TimeoutException ? null : leader);
+              callback.done(false);
+            });
+        return false;
+      }
+    };
+  }
+
+  /**
+   * This method returns whether an exchange got the response of the identical call it joined.
+   *
+   * @param exchange the exchange processed by the joiner
+   * @return true if the exchange must not call the backend
+   */
+  public boolean isCoalesced(Exchange exchange) {
+    return exchange.getProperty(COALESCED_PROPERTY, false, Boolean.class);
+  }
+
+  /**
+   * Registers the exchange as the leader of its request, or returns the call of the leader already in flight.
+   */
+  private CompletableFuture<SharedResponse> join(String nameService, Exchange exchange) {
+    // The digest only covers the SOAP envelope, so authenticated callers never share a response
+    if (SoapRequestDigest.hasCredentials(exchange.getMessage())) {
+      return null;
+    }
+    String body = exchange.getMessage().getBody(String.class);
+    if (body == null) {
+      return null;
+    }
+    // The body is kept as a String so the leader can still transform it and send it after being read
+    exchange.getMessage().setBody(body);
+    SoapRequestDigest.RequestDigest digest =
+        SoapRequestDigest.digest(body, exchange.getMessage().getHeader("SOAPAction", String.class));
+    if (digest == null) {
+      return null;
+    }
+
+    String key = nameService + "|" + digest.getOperation() + "|" + digest.getHash();
+    CompletableFuture<SharedResponse> call = new CompletableFuture<>();
+    CompletableFuture<SharedResponse> leader = inFlight.putIfAbsent(key, call);
+    if (leader != null) {
+      return leader;
+    }
+
+    counters(nameService).leaders.incrementAndGet();
+    exchange.setProperty(LEADER_KEY_PROPERTY, key);
+    exchange.getExchangeExtension().addOnCompletion(new SynchronizationAdapter() {
+      @Override
+      public void onDone(Exchange exchange) {
+        // Releases the followers if the leader failed before reaching complete
+        if (inFlight.remove(key, call)) {
+          call.completeExceptionally(exchange.getException() != null
+              ? exchange.getException()
+              : new IllegalStateException("La llamada de " + nameService + " terminó sin respuesta"));
+        }
+      }
+    });
+    return null;
+  }
+
+  /**
+   * Hands the outcome of the leader to a follower; a null leader means the follower timed out.
+   */
+  private void resume(String nameService, Exchange exchange, CompletableFuture<SharedResponse> leader) {
+    ServiceCounters serviceCounters = counters(nameService);
+    if (leader == null) {
+      serviceCounters.timeouts.incrementAndGet();
+      log.warning("Tiempo de espera agotado para la llamada compartida de " + nameService + ", se llama al backend");
+      return;
+    }
+    try {
+      SharedResponse response = leader.join();
+      serviceCounters.coalesced.incrementAndGet();
+      exchange.setProperty(COALESCED_PROPERTY, true);
+      exchange.getMessage().setBody(response.body.clone());
+      exchange.getMessage().getHeaders().putAll(response.headers);
+    } catch (CompletionException e) {
+      exchange.setException(e.getCause());
+    }
+  }
+
+  private ServiceCounters counters(String nameService) {
+    return counters.computeIfAbsent(nameService, name -> new ServiceCounters());
+  }
+
+  /**
+   * This method hands the response of a leader to the exchanges waiting for it.
+   * Exchanges that are not leaders are left untouched.
+   *
+   * @param exchange the exchange with the response of the backend
+   */
+  public void complete(Exchange exchange) {
+    String key = (String) exchange.removeProperty(LEADER_KEY_PROPERTY);
+    if (key == null) {
+      return;
+    }
+    byte[] response = exchange.getMessage().getBody(byte[].class);
+    exchange.getMessage().setBody(response);
+    CompletableFuture<SharedResponse> call = inFlight.remove(key);
+    if (call != null) {
+      call.complete(new SharedResponse(response != null ? response : new byte[0],
+          responseHeaders(exchange.getMessage().getHeaders())));
+    }
+  }
+
+  /**
+   * Copies the headers a follower needs to answer like the leader, such as CamelHttpResponseCode and the protocol
+   * headers of the backend. Only String, Number and Boolean headers are copied; headers holding objects, such as the
+   * CXF message of the leader, are skipped, except Content-Type, which is always copied as a String.
+   */
+  private static Map<String, Object> responseHeaders(Map<String, Object> headers) {
+    Map<String, Object> copy = new HashMap<>();
+    headers.forEach((name, value) -> {
+      if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+        copy.put(name, value);
+      }
+    });
+    Object contentType = headers.get(Exchange.CONTENT_TYPE);
+    if (contentType != null) {
+      copy.put(Exchange.CONTENT_TYPE, contentType.toString());
+    }
+    return Collections.unmodifiableMap(copy);
+  }
+
+  /**
+   * This method removes the counters of a service, for example when its routes are deleted.
+   *
+   * @param nameService the name of the service
+   */
+  public void remove(String nameService) {
+    counters.remove(nameService);
+  }
+
+  /**
+   * This method returns the calls in flight and the coalesced calls of each service.
+   *
+   * @return the statistics of each service
+   */
+  public List<SingleFlightStats> getStats() {
+    Map<String, SingleFlightStats> stats = new TreeMap<>();
+    counters.forEach((nameService, serviceCounters) -> stats.put(nameService, new SingleFlightStats(nameService, 0,
+        serviceCounters.leaders.get(), serviceCounters.coalesced.get(), serviceCounters.timeouts.get())));
+    inFlight.keySet().forEach(key -> {
+      SingleFlightStats serviceStats = stats.get(key.substring(0, key.indexOf('|')));
+      if (serviceStats != null) {
+        serviceStats.setInFlight(serviceStats.getInFlight() + 1);
+      }
+    });
+    return new ArrayList<>(stats.values());
+  }
+
+  private static final class SharedResponse {
+    private final byte[] body;
+    private final Map<String, Object> headers;
+
+    private SharedResponse(byte[] body, Map<String, Object> headers) {
+      this.body = body;
+      this.headers = headers;
+    }
+  }
+
+  private static final class ServiceCounters {
+    private final AtomicLong leaders = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+  }
+}
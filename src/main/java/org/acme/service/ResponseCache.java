@@ -0,0 +1,303 @@
+package org.acme.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.java.Log;
+import org.acme.DTOs.ResponseCachePolicy;
+import org.acme.DTOs.ResponseCacheStats;
+import org.acme.configurations.BackendCircuitBreakers;
+import org.apache.camel.Exchange;
+import org.bson.Document;
+
+/**
+ * This class is responsible for caching the responses of the read-only SOAP operations of the proxied services.
+ * A service opts in with a ResponseCachePolicy that lists its cacheable operations and their TTL.
+ * Entries are keyed by service, operation and the SoapRequestDigest of the request, taken after the XSLT
+ * transformation. Requests that carry the credentials of their caller are never cached.
+ * The cache is bounded by entries and by payload bytes, and evicts expired entries first and then the least recently
+ * used ones until it is back under its limits.
+ * It is annotated with @ApplicationScoped, meaning a single instance will be created for the entire application.
+ */
+@ApplicationScoped
+@Log
+public class ResponseCache {
+
+  private static final String CACHE_KEY_PROPERTY = "proxyResponseCacheKey";
+  private static final String CACHE_TTL_PROPERTY = "proxyResponseCacheTtl";
+
+  long maxBytes = Long.parseLong(System.getenv().getOrDefault("RESPONSE_CACHE_MAX_BYTES", "67108864"));
+  int maxEntries = Integer.parseInt(System.getenv().getOrDefault("RESPONSE_CACHE_MAX_ENTRIES", "10000"));
+  long maxEntryBytes = Long.parseLong(System.getenv().getOrDefault("RESPONSE_CACHE_MAX_ENTRY_BYTES", "1048576"));
+  long defaultTtlSeconds = Long.parseLong(System.getenv().getOrDefault("RESPONSE_CACHE_TTL", "60"));
+
+  private final Map<String, CachedResponse> entries = new ConcurrentHashMap<>();
+  private final Map<String, ServiceCounters> counters = new ConcurrentHashMap<>();
+  private final AtomicLong totalBytes = new AtomicLong();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  /**
+   * This method returns the cache policy of a service, filling the values it does not set with the defaults.
+   *
+   * @param requested the policy sent in the request, may be null
+   * @param stored    the service document stored in Mongo, may be empty
+   * @return the complete policy; caching stays disabled unless the policy enables it
+   */
+  public ResponseCachePolicy resolve(ResponseCachePolicy requested, Optional<Document> stored) {
+    ResponseCachePolicy policy = requested != null
+        ? requested
+        : stored.map(document -> fromDocument(document.get("responseCache", Document.class))).orElse(null);
+    if (policy == null) {
+      policy = new ResponseCachePolicy();
+    }
+    return new ResponseCachePolicy(
+        Boolean.TRUE.equals(policy.getEnabled()),
+        policy.getTtlSeconds() != null ? policy.getTtlSeconds() : defaultTtlSeconds,
+        policy.getOperations() != null ? List.copyOf(policy.getOperations()) : List.of());
+  }
+
+  /**
+   * This method converts a policy into the sub-document stored with the service in Mongo.
+   *
+   * @param policy the policy, may be null
+   * @return the document, or null if the policy is null
+   */
+  public static Document toDocument(ResponseCachePolicy policy) {
+    if (policy == null) {
+      return null;
+    }
+    return new Document()
+        .append("enabled", policy.getEnabled())
+        .append("ttlSeconds", policy.getTtlSeconds())
+        .append("operations", policy.getOperations());
+  }
+
+  /**
+   * This method reads a policy from the sub-document stored with the service in Mongo.
+   *
+   * @param document the document, may be null
+   * @return the policy, or null if the document is null
+   */
+  public static ResponseCachePolicy fromDocument(Document document) {
+    if (document == null) {
+      return null;
+    }
+    Number ttlSeconds = document.get("ttlSeconds", Number.class);
+    return new ResponseCachePolicy(
+        document.getBoolean("enabled"),
+        ttlSeconds != null ? ttlSeconds.longValue() : null,
+        document.getList("operations", String.class));
+  }
+
+  /**
+   * This method looks up the response of the request in the body of an Exchange.
+   * On a hit the body is replaced with the cached response. On a miss of a cacheable operation the key is kept in
+   * the Exchange, so store can save the backend response.
+   *
+   * @param nameService the name of the service
+   * @param policy      the complete cache policy of the service
+   * @param exchange    the Exchange about to be sent to the backend
+   * @return true if the response was served from the cache
+   */
+  public boolean lookup(String nameService, ResponseCachePolicy policy, Exchange exchange) {
+    if (policy == null || !policy.getEnabled() || policy.getOperations().isEmpty()) {
+      return false;
+    }
+    // The key only covers the SOAP envelope, so the responses to authenticated callers are never shared
+    if (SoapRequestDigest.hasCredentials(exchange.getMessage())) {
+      return false;
+    }
+    String body = exchange.getMessage().getBody(String.class);
+    if (body == null) {
+      return false;
+    }
+    // The body is kept as a String so it can still be sent to the backend after being read
+    exchange.getMessage().setBody(body);
+
+    String soapAction = exchange.getMessage().getHeader("SOAPAction", "", String.class);
+    String key = cacheKey(nameService, soapAction, body, policy.getOperations());
+    if (key == null) {
+      return false;
+    }
+
+    ServiceCounters serviceCounters = counters(nameService);
+    CachedResponse cached = entries.get(key);
+    if (cached != null && !cached.isExpired()) {
+      cached.lastAccess = System.nanoTime();
+      serviceCounters.hits.incrementAndGet();
+      // Each hit gets its own copy, so the processors after the cache cannot change the cached response
+      exchange.getMessage().setBody(cached.body.clone());
+      return true;
+    }
+    if (cached != null) {
+      remove(key, cached);
+    }
+
+    serviceCounters.misses.incrementAndGet();
+    exchange.setProperty(CACHE_KEY_PROPERTY, key);
+    exchange.setProperty(CACHE_TTL_PROPERTY, policy.getTtlSeconds());
+    return false;
+  }
+
+  /**
+   * This method saves the backend response of an Exchange whose lookup was a miss.
+   * Failed exchanges, HTTP 5xx responses, calls counted as failed by the circuit breaker, SOAP faults and responses
+   * larger than RESPONSE_CACHE_MAX_ENTRY_BYTES are not cached.
+   *
+   * @param exchange the Exchange returned by the backend
+   */
+  public void store(Exchange exchange) {
+    String key = (String) exchange.removeProperty(CACHE_KEY_PROPERTY);
+    Long ttlSeconds = (Long) exchange.removeProperty(CACHE_TTL_PROPERTY);
+    if (key == null || ttlSeconds == null || exchange.isFailed() || BackendCircuitBreakers.isBackendFailure(exchange)) {
+      return;
+    }
+    Integer responseCode = exchange.getMessage().getHeader(Exchange.HTTP_RESPONSE_CODE, Integer.class);
+    if (responseCode != null && responseCode >= 500) {
+      return;
+    }
+    byte[] response = exchange.getMessage().getBody(byte[].class);
+    if (response == null) {
+      return;
+    }
+    // The response was read to be cached, so it is handed back to the consumer as bytes
+    exchange.getMessage().setBody(response);
+    if (response.length > maxEntryBytes || SoapRequestDigest.isFault(new String(response, StandardCharsets.UTF_8))) {
+      return;
+    }
+
+    CachedResponse entry = new CachedResponse(serviceOf(key), response,
+        System.currentTimeMillis() + ttlSeconds * 1000);
+    CachedResponse previous = entries.put(key, entry);
+    totalBytes.addAndGet(entry.body.length - (previous != null ? previous.body.length : 0));
+    evictIfFull();
+  }
+
+  /**
+   * This method removes the cached responses of a service.
+   *
+   * @param nameService the name of the service
+   */
+  public void purge(String nameService) {
+    entries.forEach((key, entry) -> {
+      if (entry.nameService.equals(nameService)) {
+        remove(key, entry);
+      }
+    });
+    log.info("Caché de respuestas vaciada para el servicio " + nameService);
+  }
+
+  /**
+   * This method removes every cached response.
+   */
+  public void purgeAll() {
+    entries.forEach(this::remove);
+    log.info("Caché de respuestas vaciada");
+  }
+
+  /**
+   * This method returns the entries, bytes, hits, misses and evictions of each service.
+   *
+   * @return the statistics of each service
+   */
+  public List<ResponseCacheStats> getStats() {
+    Map<String, ResponseCacheStats> stats = new TreeMap<>();
+    counters.forEach((nameService, serviceCounters) -> stats.put(nameService, new ResponseCacheStats(nameService,
+        0, 0, serviceCounters.hits.get(), serviceCounters.misses.get(), serviceCounters.evictions.get())));
+    entries.values().forEach(entry -> {
+      ResponseCacheStats serviceStats = stats.get(entry.nameService);
+      if (serviceStats != null) {
+        serviceStats.setEntries(serviceStats.getEntries() + 1);
+        serviceStats.setBytes(serviceStats.getBytes() + entry.body.length);
+      }
+    });
+    return new ArrayList<>(stats.values());
+  }
+
+  private static String cacheKey(String nameService, String soapAction, String body, List<String> operations) {
+    SoapRequestDigest.RequestDigest digest = SoapRequestDigest.digest(body, soapAction);
+    if (digest == null || !operations.contains(digest.getOperation())) {
+      return null;
+    }
+    return nameService + "|" + digest.getOperation() + "|" + digest.getHash();
+  }
+
+  private void evictIfFull() {
+    if ((totalBytes.get() <= maxBytes && entries.size() <= maxEntries) || !evictionLock.tryLock()) {
+      return;
+    }
+    try {
+      entries.forEach((key, entry) -> {
+        if (entry.isExpired()) {
+          remove(key, entry);
+        }
+      });
+      if (totalBytes.get() <= maxBytes && entries.size() <= maxEntries) {
+        return;
+      }
+
+      // Evict the least recently used entries until the cache is at 90% of its limits, so one pass serves many stores
+      long targetBytes = maxBytes * 9 / 10;
+      int targetEntries = maxEntries * 9 / 10;
+      List<Map.Entry<String, CachedResponse>> candidates = new ArrayList<>(entries.entrySet());
+      candidates.sort(Comparator.comparingLong(candidate -> candidate.getValue().lastAccess));
+      for (Map.Entry<String, CachedResponse> candidate : candidates) {
+        if (totalBytes.get() <= targetBytes && entries.size() <= targetEntries) {
+          break;
+        }
+        if (remove(candidate.getKey(), candidate.getValue())) {
+          counters(candidate.getValue().nameService).evictions.incrementAndGet();
+        }
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private boolean remove(String key, CachedResponse entry) {
+    if (entries.remove(key, entry)) {
+      totalBytes.addAndGet(-entry.body.length);
+      return true;
+    }
+    return false;
+  }
+
+  private ServiceCounters counters(String nameService) {
+    return counters.computeIfAbsent(nameService, key -> new ServiceCounters());
+  }
+
+  private static String serviceOf(String key) {
+    return key.substring(0, key.indexOf('|'));
+  }
+
+  private static final class CachedResponse {
+    private final String nameService;
+    private final byte[] body;
+    private final long expiresAt;
+    private volatile long lastAccess = System.nanoTime();
+
+    private CachedResponse(String nameService, byte[] body, long expiresAt) {
+      this.nameService = nameService;
+      this.body = body;
+      this.expiresAt = expiresAt;
+    }
+
+    private boolean isExpired() {
+      return System.currentTimeMillis() > expiresAt;
+    }
+  }
+
+  private static final class ServiceCounters {
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+  }
+}
@@ -0,0 +1,148 @@
+package org.acme.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.java.Log;
+import org.apache.camel.Exchange;
+import org.apache.camel.support.SynchronizationAdapter;
+
+/**
+ * This class is responsible for the latency and error metrics of the proxy routes.
+ * Each service has one timer per stage (transform, backend and total) with a percentile histogram, and an error counter,
+ * all tagged with nameService. The meters are created when the routes of a service are built and removed when the
+ * service is deleted, so the number of series follows the live routes.
+ * It is annotated with @ApplicationScoped, meaning a single instance will be created for the entire application.
+ */
+@ApplicationScoped
+@Log
+public class RouteMetrics {
+
+  private static final String LATENCY_METRIC = "proxy.route.latency";
+  private static final String ERRORS_METRIC = "proxy.route.errors";
+  private static final String BACKEND_START_PROPERTY = "proxyBackendStart";
+
+  @Inject
+  MeterRegistry meterRegistry;
+
+  private final Map<String, ServiceMetrics> metricsByService = new ConcurrentHashMap<>();
+
+  /**
+   * This method returns the meters of a service, creating them if they do not exist.
+   *
+   * @param nameService the name of the service
+   * @return the meters of the service
+   */
+  public ServiceMetrics register(String nameService) {
+    return metricsByService.computeIfAbsent(nameService, ServiceMetrics::new);
+  }
+
+  /**
+   * This method removes the meters of a service from the registry.
+   *
+   * @param nameService the name of the service
+   */
+  public void remove(String nameService) {
+    ServiceMetrics metrics = metricsByService.remove(nameService);
+    if (metrics != null) {
+      metrics.meters().forEach(meterRegistry::remove);
+      log.info("Métricas eliminadas para el servicio " + nameService);
+    }
+  }
+
+  /**
+   * This class holds the meters of one service and records the stages of its exchanges.
+   */
+  public final class ServiceMetrics {
+    private final Timer transform;
+    private final Timer backend;
+    private final Timer total;
+    private final Counter errors;
+
+    private ServiceMetrics(String nameService) {
+      transform = timer(nameService, "transform");
+      backend = timer(nameService, "backend");
+      total = timer(nameService, "total");
+      errors = Counter.builder(ERRORS_METRIC)
+          .description("Failed exchanges of a proxied SOAP service")
+          .tag("nameService", nameService)
+          .register(meterRegistry);
+    }
+
+    /**
+     * This method starts measuring the total time of an exchange, which is recorded when the exchange completes.
+     * A failed exchange is also counted as an error, and its backend call is recorded if it was still running.
+     *
+     * @param exchange the exchange received by the CXF consumer
+     */
+    public void trackTotal(Exchange exchange) {
+      long start = System.nanoTime();
+      exchange.getExchangeExtension().addOnCompletion(new SynchronizationAdapter() {
+        @Override
+        public void onComplete(Exchange exchange) {
+          total.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void onFailure(Exchange exchange) {
+          stopBackend(exchange);
+          total.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+          errors.increment();
+        }
+      });
+    }
+
+    /**
+     * This method records the time of the XSLT transformation.
+     *
+     * @param nanos the duration of the transformation in nanoseconds
+     */
+    public void recordTransform(long nanos) {
+      transform.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * This method marks the start of the backend call of an exchange.
+     *
+     * @param exchange the exchange sent to the backend
+     */
+    public void startBackend(Exchange exchange) {
+      exchange.setProperty(BACKEND_START_PROPERTY, System.nanoTime());
+    }
+
+    /**
+     * This method records the time of the backend call of an exchange, if it was started.
+     *
+     * @param exchange the exchange returned by the backend
+     */
+    public void stopBackend(Exchange exchange) {
+      Long start = exchange.removeProperty(BACKEND_START_PROPERTY) instanceof Long value ? value : null;
+      if (start != null) {
+        backend.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      }
+    }
+
+    private List<Meter> meters() {
+      return List.of(transform, backend, total, errors);
+    }
+  }
+
+  private Timer timer(String nameService, String stage) {
+    return Timer.builder(LATENCY_METRIC)
+        .description("Latency of a stage of a proxied SOAP service")
+        .tag("nameService", nameService)
+        .tag("stage", stage)
+        .publishPercentileHistogram()
+        .minimumExpectedValue(Duration.ofMillis(1))
+        .maximumExpectedValue(Duration.ofSeconds(60))
+        .register(meterRegistry);
+  }
+}
@@ -0,0 +1,373 @@
+package org.acme.service;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import io.quarkus.mongodb.reactive.ReactiveMongoClient;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.java.Log;
+import org.acme.DTOs.ModifyDataHots;
+import org.acme.configurations.BackendCircuitBreakers;
+import org.acme.configurations.BackendConnectionPools;
+import org.acme.configurations.MessageCompression;
+import org.bson.Document;
+
+/**
+ * This class is responsible for reading and writing the service definitions stored in Service.service.
+ * Lookups by nameService go through a write-through cache with a TTL and a maximum size,
+ * and every insert, update and delete invalidates the affected entries, including the ones a read that started
+ * before the write would cache afterwards. The cache keeps its own copies of the documents and returns copies.
+ * Each operation has a blocking variant and a non-blocking variant built on the reactive Mongo client,
+ * and both share the same cache.
+ * It is annotated with @ApplicationScoped, meaning a single instance will be created for the entire application.
+ */
+@ApplicationScoped
+@Log
+public class ServiceRepository {
+
+  private final long ttlMillis =
+      Long.parseLong(System.getenv().getOrDefault("SERVICE_CACHE_TTL", "60")) * 1000;
+  private final int maxEntries =
+      Integer.parseInt(System.getenv().getOrDefault("SERVICE_CACHE_MAX_ENTRIES", "1000"));
+
+  @Inject
+  MongoClient mongoClient;
+
+  @Inject
+  ReactiveMongoClient reactiveMongoClient;
+
+  private volatile MongoCollection<Document> collection;
+  private volatile ReactiveMongoCollection<Document> reactiveCollection;
+
+  // Cached lookups by nameService; an empty Optional remembers that the service does not exist
+  private final Map<String, CachedService> cache = new ConcurrentHashMap<>();
+  // Increased by every write, so a read that started before a write does not cache what it read
+  private final AtomicLong generation = new AtomicLong();
+
+  /**
+   * This method is called at application startup.
+   * It creates the unique index on nameService that the lookups rely on.
+   *
+   * @param ev the startup event, provided by the Quarkus runtime
+   */
+  void onStart(@Observes StartupEvent ev) {
+    try {
+      getCollection().createIndex(Indexes.ascending("nameService"), new IndexOptions().unique(true));
+    } catch (Exception e) {
+      log.warning("No se pudo crear el índice único de nameService: " + e.getMessage());
+    }
+  }
+
+  /**
+   * This method is used to find a service definition by its name.
+   *
+   * @param nameService the name of the service
+   * @return an Optional containing the service document, or an empty Optional if it does not exist
+   */
+  public Optional<Document> findByName(String nameService) {
+    CachedService cached = cache.get(nameService);
+    if (cached != null && !cached.isExpired()) {
+      return cached.document.map(ServiceRepository::copy);
+    }
+
+    long stamp = generation.get();
+    Optional<Document> document = Optional.ofNullable(
+        getCollection().find(new Document("nameService", nameService)).first());
+    put(nameService, document, stamp);
+    return document;
+  }
+
+  /**
+   * This method is used to find several service definitions with a single $in query for the ones not in the cache.
+   *
+   * @param nameServices the names of the services
+   * @return the service documents that exist, keyed by nameService
+   */
+  public Map<String, Document> findByNames(Collection<String> nameServices) {
+    Map<String, Document> found = new LinkedHashMap<>();
+    List<String> missing = new ArrayList<>();
+    for (String nameService : nameServices) {
+      CachedService cached = cache.get(nameService);
+      if (cached != null && !cached.isExpired()) {
+        cached.document.ifPresent(document -> found.put(nameService, copy(document)));
+      } else {
+        missing.add(nameService);
+      }
+    }
+
+    if (!missing.isEmpty()) {
+      long stamp = generation.get();
+      for (Document document : getCollection().find(new Document("nameService", new Document("$in", missing)))) {
+        found.put(document.getString("nameService"), document);
+      }
+      missing.forEach(nameService -> put(nameService, Optional.ofNullable(found.get(nameService)), stamp));
+    }
+    return found;
+  }
+
+  /**
+   * This method is used to insert a new service definition.
+   *
+   * @param document the service document
+   */
+  public void insert(Document document) {
+    String nameService = document.getString("nameService");
+    long stamp = invalidate(nameService);
+    getCollection().insertOne(document);
+    put(nameService, Optional.of(document), stamp);
+  }
+
+  /**
+   * This method is used to set fields of a service definition, creating it if it does not exist.
+   *
+   * @param nameService the name of the service
+   * @param fields      the fields to set
+   */
+  public void upsert(String nameService, Document fields) {
+    invalidate(nameService);
+    getCollection().updateOne(new Document("nameService", nameService), new Document("$set", fields),
+        new UpdateOptions().upsert(true));
+    invalidate(nameService);
+  }
+
+  /**
+   * This method is used to set fields of several service definitions with a single bulk write, creating the ones
+   * that do not exist.
+   *
+   * @param fieldsByService the fields to set, keyed by nameService
+   */
+  public void upsertAll(Map<String, Document> fieldsByService) {
+    if (fieldsByService.isEmpty()) {
+      return;
+    }
+    fieldsByService.keySet().forEach(this::invalidate);
+    List<UpdateOneModel<Document>> updates = new ArrayList<>();
+    fieldsByService.forEach((nameService, fields) -> updates.add(new UpdateOneModel<>(
+        new Document("nameService", nameService), new Document("$set", fields), new UpdateOptions().upsert(true))));
+    getCollection().bulkWrite(updates);
+    fieldsByService.keySet().forEach(this::invalidate);
+  }
+
+  /**
+   * This method is used to delete a service definition.
+   *
+   * @param nameService the name of the service
+   */
+  public void delete(String nameService) {
+    invalidate(nameService);
+    getCollection().deleteOne(new Document("nameService", nameService));
+    invalidate(nameService);
+  }
+
+  /**
+   * This method is used to delete several service definitions with a single $in query.
+   *
+   * @param nameServices the names of the services
+   */
+  public void deleteAll(Collection<String> nameServices) {
+    nameServices.forEach(this::invalidate);
+    getCollection().deleteMany(new Document("nameService", new Document("$in", new ArrayList<>(nameServices))));
+    nameServices.forEach(this::invalidate);
+  }
+
+  /**
+   * This method is used to find a service definition by its name without blocking the calling thread.
+   *
+   * @param nameService the name of the service
+   * @return a Uni with an Optional containing the service document, or an empty Optional if it does not exist
+   */
+  public Uni<Optional<Document>> findByNameReactive(String nameService) {
+    CachedService cached = cache.get(nameService);
+    if (cached != null && !cached.isExpired()) {
+      return Uni.createFrom().item(cached.document.map(ServiceRepository::copy));
+    }
+
+    long stamp = generation.get();
+    return getReactiveCollection().find(new Document("nameService", nameService)).collect().first()
+        .map(Optional::ofNullable)
+        .invoke(document -> put(nameService, document, stamp));
+  }
+
+  /**
+   * This method is used to read every service definition as a stream, without loading the whole catalog in memory.
+   * Each document read is also put in the cache, so the lookups made while handling it do not go back to Mongo.
+   *
+   * @return a Multi with the service documents
+   */
+  public Multi<Document> streamAll() {
+    long stamp = generation.get();
+    return getReactiveCollection().find()
+        .invoke(document -> put(document.getString("nameService"), Optional.of(document), stamp));
+  }
+
+  /**
+   * This method is used to insert a new service definition without blocking the calling thread.
+   *
+   * @param document the service document
+   * @return a Uni that completes when the document is inserted
+   */
+  public Uni<Void> insertReactive(Document document) {
+    String nameService = document.getString("nameService");
+    long stamp = invalidate(nameService);
+    return getReactiveCollection().insertOne(document)
+        .invoke(() -> put(nameService, Optional.of(document), stamp))
+        .replaceWithVoid();
+  }
+
+  /**
+   * This method is used to set fields of a service definition without blocking the calling thread,
+   * creating it if it does not exist.
+   *
+   * @param nameService the name of the service
+   * @param fields      the fields to set
+   * @return a Uni that completes when the document is written
+   */
+  public Uni<Void> upsertReactive(String nameService, Document fields) {
+    invalidate(nameService);
+    return getReactiveCollection().updateOne(new Document("nameService", nameService), new Document("$set", fields),
+            new UpdateOptions().upsert(true))
+        .invoke(() -> invalidate(nameService))
+        .replaceWithVoid();
+  }
+
+  /**
+   * This method is used to delete a service definition without blocking the calling thread.
+   *
+   * @param nameService the name of the service
+   * @return a Uni that completes when the document is deleted
+   */
+  public Uni<Void> deleteReactive(String nameService) {
+    invalidate(nameService);
+    return getReactiveCollection().deleteOne(new Document("nameService", nameService))
+        .invoke(() -> invalidate(nameService))
+        .replaceWithVoid();
+  }
+
+  /**
+   * This method converts the policies sent for a service into the fields stored with it, so the routes restored
+   * after a restart get them back. Only the policies present in the request are included, so the stored ones that
+   * the request does not send are kept.
+   *
+   * @param routeDto the data of the service
+   * @return the policy fields, empty if the request sends no policy
+   */
+  public static Document policies(ModifyDataHots routeDto) {
+    Document fields = new Document();
+    if (routeDto.getConnectionPolicy() != null) {
+      fields.append("connectionPolicy", BackendConnectionPools.toDocument(routeDto.getConnectionPolicy()));
+    }
+    if (routeDto.getResponseCache() != null) {
+      fields.append("responseCache", ResponseCache.toDocument(routeDto.getResponseCache()));
+    }
+    if (routeDto.getCircuitBreaker() != null) {
+      fields.append("circuitBreaker", BackendCircuitBreakers.toDocument(routeDto.getCircuitBreaker()));
+    }
+    if (routeDto.getSingleFlight() != null) {
+      fields.append("singleFlight", routeDto.getSingleFlight());
+    }
+    if (routeDto.getCompression() != null) {
+      fields.append("compression", MessageCompression.toDocument(routeDto.getCompression()));
+    }
+    return fields;
+  }
+
+  /**
+   * Removes a service from the cache and makes the reads that started before this call unable to cache what they
+   * read. The generation is increased before the entry is removed, so a read cannot put its document back in between.
+   *
+   * @return the generation after the invalidation
+   */
+  private long invalidate(String nameService) {
+    long stamp = generation.incrementAndGet();
+    cache.remove(nameService);
+    return stamp;
+  }
+
+  /**
+   * Caches a copy of what a read or a write found, unless a write invalidated the cache since the generation stamp
+   * was taken; the generation is checked inside compute, so the check and the put cannot be split by an invalidation.
+   */
+  private void put(String nameService, Optional<Document> document, long stamp) {
+    if (cache.size() >= maxEntries && !cache.containsKey(nameService)) {
+      cache.values().removeIf(CachedService::isExpired);
+      if (cache.size() >= maxEntries) {
+        cache.entrySet().stream()
+            .min((a, b) -> Long.compare(a.getValue().expiresAt, b.getValue().expiresAt))
+            .ifPresent(eldest -> cache.remove(eldest.getKey(), eldest.getValue()));
+      }
+    }
+    CachedService entry = new CachedService(document.map(ServiceRepository::copy),
+        System.currentTimeMillis() + ttlMillis);
+    cache.compute(nameService, (key, current) -> generation.get() == stamp ? entry : current);
+  }
+
+  /**
+   * Copies a document and its nested documents and lists, so the cached documents are never shared with callers.
+   */
+  private static Document copy(Document document) {
+    Document copy = new Document();
+    document.forEach((key, value) -> copy.put(key, copyValue(value)));
+    return copy;
+  }
+
+  private static Object copyValue(Object value) {
+    if (value instanceof Document document) {
+      return copy(document);
+    }
+    if (value instanceof List<?> list) {
+      List<Object> copy = new ArrayList<>(list.size());
+      list.forEach(item -> copy.add(copyValue(item)));
+      return copy;
+    }
+    return value;
+  }
+
+  private MongoCollection<Document> getCollection() {
+    MongoCollection<Document> current = collection;
+    if (current == null) {
+      current = mongoClient.getDatabase("Service").getCollection("service");
+      collection = current;
+    }
+    return current;
+  }
+
+  private ReactiveMongoCollection<Document> getReactiveCollection() {
+    ReactiveMongoCollection<Document> current = reactiveCollection;
+    if (current == null) {
+      current = reactiveMongoClient.getDatabase("Service").getCollection("service");
+      reactiveCollection = current;
+    }
+    return current;
+  }
+
+  private static final class CachedService {
+    private final Optional<Document> document;
+    private final long expiresAt;
+
+    private CachedService(Optional<Document> document, long expiresAt) {
+      this.document = document;
+      this.expiresAt = expiresAt;
+    }
+
+    private boolean isExpired() {
+      return System.currentTimeMillis() > expiresAt;
+    }
+  }
+}
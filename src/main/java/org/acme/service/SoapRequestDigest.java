@@ -0,0 +1,174 @@
+package org.acme.service;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import lombok.Value;
+import org.apache.camel.Message;
+
+/**
+ * This class is responsible for identifying equivalent SOAP requests.
+ * It hashes a canonical form of the XML, so requests that only differ in namespace prefixes, attribute order,
+ * comments or whitespace between elements get the same hash, and reads the operation from the SOAP Body.
+ * It also recognizes the responses that carry a SOAP fault and the requests that carry the credentials of their caller.
+ */
+public final class SoapRequestDigest {
+
+  private static final String SOAP11_NS = "http://schemas.xmlsoap.org/soap/envelope/";
+  private static final String SOAP12_NS = "http://www.w3.org/2003/05/soap-envelope";
+  private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+  private static final List<String> CREDENTIAL_HEADERS = List.of("Authorization", "Proxy-Authorization", "Cookie");
+  private static final Pattern FAULT = Pattern.compile("<(\\w+:)?Fault[\\s>/]");
+
+  private SoapRequestDigest() {
+  }
+
+  /**
+   * The operation and the hash of a SOAP request.
+   */
+  @Value
+  public static class RequestDigest {
+    String operation;
+    String hash;
+  }
+
+  /**
+   * This method returns whether a SOAP response carries a fault.
+   *
+   * @param body the SOAP envelope
+   * @return true if the body contains a Fault element
+   */
+  public static boolean isFault(String body) {
+    return body != null && FAULT.matcher(body).find();
+  }
+
+  /**
+   * This method returns whether a request carries the credentials of its caller in an HTTP header.
+   * The digest only covers the SOAP envelope, so the response to such a request must not be shared with other callers.
+   *
+   * @param message the request message
+   * @return true if the message has an Authorization, Proxy-Authorization or Cookie header
+   */
+  public static boolean hasCredentials(Message message) {
+    return CREDENTIAL_HEADERS.stream().anyMatch(header -> message.getHeader(header) != null);
+  }
+
+  /**
+   * This method computes the operation and the SHA-256 hash of a SOAP request.
+   * The SOAPAction header is part of the hash.
+   *
+   * @param body       the SOAP envelope
+   * @param soapAction the SOAPAction header, may be null
+   * @return the digest, or null if the body is not XML or has no element inside the SOAP Body
+   */
+  public static RequestDigest digest(String body, String soapAction) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      String operation = canonicalize(body, digest);
+      if (operation == null) {
+        return null;
+      }
+      update(digest, 'S', soapAction != null ? soapAction : "");
+      return new RequestDigest(operation, HexFormat.of().formatHex(digest.digest()));
+    } catch (XMLStreamException e) {
+      return null;
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Feeds the digest with a canonical form of the XML: qualified names, sorted attributes and text, without prefixes,
+   * comments or the whitespace between elements. Every token is tagged with its kind and prefixed with its length,
+   * so no value can pass for markup and two different documents never feed the same bytes.
+   *
+   * @return the local name of the first element inside the SOAP Body, or null if there is none
+   */
+  private static String canonicalize(String body, MessageDigest digest) throws XMLStreamException {
+    XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(new StringReader(body));
+    String operation = null;
+    int depth = 0;
+    int bodyDepth = -1;
+    StringBuilder text = new StringBuilder();
+    // True while the current element has no child element, so its text is kept even if it is only whitespace
+    boolean leaf = false;
+    try {
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          flushText(digest, text, false);
+          leaf = true;
+          depth++;
+          String namespace = reader.getNamespaceURI() != null ? reader.getNamespaceURI() : "";
+          if (bodyDepth < 0 && "Body".equals(reader.getLocalName())
+              && (SOAP11_NS.equals(namespace) || SOAP12_NS.equals(namespace))) {
+            bodyDepth = depth;
+          } else if (operation == null && bodyDepth > 0 && depth == bodyDepth + 1) {
+            operation = reader.getLocalName();
+          }
+          update(digest, 'E', namespace);
+          update(digest, 'N', reader.getLocalName());
+          Map<String, String[]> attributes = new TreeMap<>();
+          for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String attributeNamespace = reader.getAttributeNamespace(i) != null ? reader.getAttributeNamespace(i) : "";
+            attributes.put("{" + attributeNamespace + "}" + reader.getAttributeLocalName(i),
+                new String[] {attributeNamespace, reader.getAttributeLocalName(i), reader.getAttributeValue(i)});
+          }
+          attributes.values().forEach(attribute -> {
+            update(digest, 'A', attribute[0]);
+            update(digest, 'N', attribute[1]);
+            update(digest, 'V', attribute[2]);
+          });
+        } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+            || event == XMLStreamConstants.SPACE) {
+          text.append(reader.getText());
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          flushText(digest, text, leaf);
+          leaf = false;
+          depth--;
+          update(digest, 'C', "");
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    return operation;
+  }
+
+  /**
+   * Feeds the digest with the text read since the last tag, as it is. Whitespace-only text between elements is
+   * indentation and is skipped, unless it is the whole content of an element.
+   */
+  private static void flushText(MessageDigest digest, StringBuilder text, boolean leaf) {
+    if (leaf || !text.toString().isBlank()) {
+      update(digest, 'T', text.toString());
+    }
+    text.setLength(0);
+  }
+
+  private static void update(MessageDigest digest, char kind, String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    digest.update((byte) kind);
+    digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+    digest.update(bytes);
+  }
+
+  private static XMLInputFactory createXmlInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    return factory;
+  }
+}
@@ -1,11 +1,9 @@
 package org.acme.service;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import lombok.extern.java.Log;
-
-import java.io.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import org.acme.DTOs.WsdlDefinition;
 
 /**
  * This class is responsible for retrieving the host from a WSDL file.
@@ -16,67 +14,25 @@ import java.util.regex.Pattern;
 @Log
 public class SoapServiceConfiguration {
 
+  @Inject
+  WsdlCatalog wsdlCatalog;
+
   /**
-   * This method is used to get the host from the first WSDL file in the 'wsdl' directory.
-   * It reads the WSDL file line by line and uses a regular expression to find the host.
+   * This method is used to get the port type from the first WSDL file in the 'wsdl' directory.
    *
-   * @return the host from the WSDL file, or null if the host could not be found
+   * @return the port type from the WSDL file, or null if it could not be found
    */
   public String getHost() {
-    try {
-      String folderPath =
-          "src/main/resources/wsdl/";
-      File folder = new File(folderPath);
-
-      if (folder.exists() && folder.isDirectory()) {
-        File[] files = folder.listFiles();
-        if (files != null && files.length > 0) {
-          // Take the first resource (you can adjust this according to your needs)
-          File firstFile = files[0];
-
-          // Get the service address from the first WSDL file
-          String location = getLocationFromWSDLFile(firstFile);
-          return location;
-        } else {
-          System.out.println("The 'wsdl' folder is empty.");
-        }
-      } else {
-        System.out.println("The 'wsdl' folder does not exist or is not a folder.");
-      }
-
-    } catch (IOException e) {
-      System.out.println("Error extracting the service address: " + e.getMessage());
-    }
-
-    return null;
+    return wsdlCatalog.first().map(WsdlDefinition::getPortType).orElse(null);
   }
 
   /**
-   * This method is used to get the location from a WSDL file.
-   * It reads the WSDL file line by line and uses a regular expression to find the location.
+   * This method is used to get the port type from the WSDL file of a service.
    *
-   * @param wsdlFile the WSDL file to extract the location from
-   * @return the location from the WSDL file, or null if the location could not be found
-   * @throws IOException if an error occurs while reading the file
+   * @param nameService the name of the service
+   * @return the port type from the WSDL file, or null if it could not be found
    */
-  private String getLocationFromWSDLFile(File wsdlFile) throws IOException {
-    BufferedReader reader = new BufferedReader(new FileReader(wsdlFile));
-    String line;
-    Pattern pattern = Pattern.compile("<portType\\s+name=\"(.*?)\"\\s*>");
-
-    // Search for the service address in the file content
-    while ((line = reader.readLine()) != null) {
-      Matcher matcher = pattern.matcher(line);
-      if (matcher.find()) {
-        // The service address is found in the first group captured by the pattern
-        String location = matcher.group(1);
-        // Close the BufferedReader reader
-        reader.close();
-        return location;
-      }
-    }
-    // Close the BufferedReader reader
-    reader.close();
-    return null;
+  public String getHost(String nameService) {
+    return wsdlCatalog.get(nameService).map(WsdlDefinition::getPortType).orElse(null);
   }
-}
\ No newline at end of file
+}
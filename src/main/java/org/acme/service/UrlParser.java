@@ -1,6 +1,7 @@
 package org.acme.service;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import lombok.extern.java.Log;
 import org.acme.DTOs.Net;
 
 import java.net.URL;
@@ -10,12 +11,14 @@ import java.net.URL;
  * It is annotated with @ApplicationScoped, meaning a single instance will be created for the entire application.
  */
 @ApplicationScoped
+@Log
 public class UrlParser {
 
     /**
      * This method is used to parse a URL string and extract its components.
      * It creates a URL object from the string and extracts the protocol, host, port, and path.
      * These components are then set in a Net object, which is returned.
+     * The components are logged at FINE level, so the lookups of the proxy routes do not write to the console.
      *
      * @param urlString the URL string to parse
      * @return a Net object containing the components of the URL
@@ -30,22 +33,22 @@ public class UrlParser {
             // Protocol (http)
             String protocol = url.getProtocol();
             net.setProtocol(protocol);
-            System.out.println("Protocolo: " + protocol);
+            log.fine(() -> "Protocolo: " + protocol);
 
             // Host (localhost)
             String host = url.getHost();
             net.setHost(host);
-            System.out.println("Host: " + host);
+            log.fine(() -> "Host: " + host);
 
             // Port (9080)
             int port = url.getPort();
             net.setPort(String.valueOf(port));
-            System.out.println("Puerto: " + port);
+            log.fine(() -> "Puerto: " + port);
 
             // Path (/BBVA_PROCWeb/sca/EntradaProcesoExport1)
             String path = url.getPath();
             net.setPath(path);
-            System.out.println("Ruta: " + path);
+            log.fine(() -> "Ruta: " + path);
 
         } catch (Exception e) {
             e.printStackTrace();
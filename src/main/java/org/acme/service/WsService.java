@@ -38,6 +38,9 @@ public class WsService {
   @Inject
   MongoClient mongoClient;
 
+  @Inject
+  ServiceRepository serviceRepository;
+
   /**
    * This method is used to create a new web service.
    * It first retrieves the host from the WSDL file using the WsdlHostInfo service.
@@ -48,12 +51,7 @@ public class WsService {
    * @throws IOException if an error occurs during host retrieval
    */
   public void createWs(FormData formData) throws IOException {
-    Document query = new Document("nameService", formData.getWsdlDetail());
-    Document result = (Document) getCollection().find(query).first();
-
-
-
-    if ( result != null) {
+    if (serviceRepository.findByName(formData.getWsdlDetail()).isPresent()) {
       log.info("El servicio ya existe");
       return;
     }
@@ -77,8 +75,7 @@ public class WsService {
    * @return an Optional containing the WserviceDTO if found, or an empty Optional otherwise
    */
   public Optional<WserviceDTO> getAllWs(String nameService) {
-    Document query = new Document("nameService", nameService);
-    Document result = (Document) getCollection().find(query).first();
+    Document result = serviceRepository.findByName(nameService).orElse(null);
 
     if (result != null) {
       WserviceDTO wserviceDTO = new WserviceDTO();
@@ -91,39 +88,6 @@ public class WsService {
     return Optional.empty();
   }
 
-  /**
-   * This method is used to modify a web service by its name.
-   * It first retrieves the WserviceEntity with the specified name using the WsRespository.
-   * If the WserviceEntity is found, it updates its properties based on the provided ModifyDataHots and persists the changes using the WsRespository.
-   *
-   * @param modifyDataHots the data containing the new details of the web service
-   */
-  public void modifyWsByName(ModifyDataHots modifyDataHots) {
-
-    Document query = new Document("nameService", modifyDataHots.getNameService());
-    Document result = (Document) getCollection().find(query).first();
-
-    if (result != null) {
-        Document update = new Document("$set", new Document()
-                .append("nameService", modifyDataHots.getNameService())
-                .append("hostService", modifyDataHots.getHostService())
-                .append("portService", modifyDataHots.getPortService())
-                .append("protocolService", modifyDataHots.getProtocolService())
-                .append("pathService", modifyDataHots.getPathService()));
-        getCollection().updateOne(query, update);
-    }
-    else {
-      Document document = new Document()
-              .append("nameService", modifyDataHots.getNameService())
-              .append("hostService", modifyDataHots.getHostService())
-              .append("portService", modifyDataHots.getPortService())
-              .append("protocolService", modifyDataHots.getProtocolService())
-              .append("pathService", modifyDataHots.getPathService());
-      getCollection().insertOne(document);
-    }
-
-  }
-
   public void addRouteMongo(ModifyDataHots modifyDataHots){
     Document document = new Document()
             .append("nameService", modifyDataHots.getNameService())
@@ -132,14 +96,8 @@ public class WsService {
             .append("protocolService", modifyDataHots.getProtocolService())
             .append("pathService", modifyDataHots.getPathService());
 
+    serviceRepository.insert(document);
 
-
-    getCollection().insertOne(document);
-
-  }
-
-  private MongoCollection getCollection(){
-    return mongoClient.getDatabase("Service").getCollection("service");
   }
 
   /**
@@ -0,0 +1,234 @@
+package org.acme.service;
+
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import lombok.extern.java.Log;
+import org.acme.DTOs.ArtifactVersion;
+import org.acme.DTOs.WsdlDefinition;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * This class is responsible for keeping an in-memory index of the WSDL files of the services.
+ * The WSDL of a service is the current version stored in the ArtifactRepository, and the files bundled under
+ * src/main/resources/wsdl/ are used for the services that have no stored version.
+ * Each version is parsed once with a namespace-aware XML parser, and is parsed again only when the hash of the
+ * current version changes, including when it was uploaded through another replica. A bundled file is parsed again
+ * when its modification time changes, so edits to it are picked up without a restart.
+ * It is annotated with @ApplicationScoped, meaning a single instance will be created for the entire application.
+ */
+@ApplicationScoped
+@Log
+public class WsdlCatalog {
+
+  // Directory of the WSDL files bundled with the application
+  private static final String WSDL_DIRECTORY = "src/main/resources/wsdl/";
+  private static final String WSDL_EXTENSION = ".wsdl";
+
+  private static final String WSDL_NS = "http://schemas.xmlsoap.org/wsdl/";
+  private static final String SOAP11_NS = "http://schemas.xmlsoap.org/wsdl/soap/";
+  private static final String SOAP12_NS = "http://schemas.xmlsoap.org/wsdl/soap12/";
+
+  @Inject
+  ArtifactRepository artifactRepository;
+
+  private final Map<String, WsdlDefinition> definitions = new ConcurrentSkipListMap<>();
+  private final DocumentBuilderFactory documentBuilderFactory = createDocumentBuilderFactory();
+  private final ReentrantLock factoryLock = new ReentrantLock();
+
+  /**
+   * This method is called at application startup.
+   * It indexes every bundled WSDL file and every service with a WSDL stored in the ArtifactRepository.
+   *
+   * @param ev the startup event, provided by the Quarkus runtime
+   */
+  void onStart(@Observes StartupEvent ev) {
+    Path directory = Path.of(WSDL_DIRECTORY);
+    if (Files.isDirectory(directory)) {
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + WSDL_EXTENSION)) {
+        files.forEach(file -> refresh(serviceNameOf(file)));
+      } catch (IOException e) {
+        log.warning("No se pudo indexar el directorio WSDL: " + e.getMessage());
+      }
+    }
+    try {
+      artifactRepository.names(ArtifactRepository.WSDL).forEach(this::refresh);
+    } catch (Exception e) {
+      log.warning("No se pudieron indexar los WSDL almacenados: " + e.getMessage());
+    }
+    log.info("WSDL indexados: " + definitions.size());
+  }
+
+  /**
+   * This method returns the indexed definition of a service.
+   * If the service is not indexed yet, a newer version was stored, or its bundled file was modified, the current
+   * version is parsed first.
+   *
+   * @param nameService the name of the service
+   * @return an Optional containing the definition if the service has a WSDL, or an empty Optional otherwise
+   */
+  public Optional<WsdlDefinition> get(String nameService) {
+    if (nameService == null) {
+      return Optional.empty();
+    }
+    WsdlDefinition definition = definitions.get(nameService);
+    ArtifactVersion current = currentVersion(nameService);
+    if (definition == null
+        || (current != null && !current.getHash().equals(definition.getHash()))
+        || (current == null && bundledFileChanged(definition))) {
+      definition = refresh(nameService);
+    }
+    return Optional.ofNullable(definition);
+  }
+
+  /**
+   * This method returns the first indexed definition, ordered by service name.
+   *
+   * @return an Optional containing the first definition, or an empty Optional if there are no WSDL files
+   */
+  public Optional<WsdlDefinition> first() {
+    return definitions.values().stream().findFirst();
+  }
+
+  /**
+   * This method returns every indexed definition.
+   *
+   * @return the indexed definitions, ordered by service name
+   */
+  public Collection<WsdlDefinition> getAll() {
+    return definitions.values();
+  }
+
+  /**
+   * This method parses the current WSDL of a service again and updates the index.
+   * It is called after an upload so the new version is visible right away on this replica.
+   *
+   * @param nameService the name of the service
+   * @return the new definition, or null if the service has no WSDL or it cannot be parsed
+   */
+  public WsdlDefinition refresh(String nameService) {
+    try {
+      ArtifactVersion current = currentVersion(nameService);
+      WsdlDefinition definition;
+      if (current != null) {
+        definition = parse(nameService, artifactRepository.localFile(current), current.getCreatedAt(),
+            current.getHash());
+      } else {
+        Path file = Path.of(WSDL_DIRECTORY, nameService + WSDL_EXTENSION);
+        if (!Files.isRegularFile(file)) {
+          definitions.remove(nameService);
+          return null;
+        }
+        definition = parse(nameService, file, Files.getLastModifiedTime(file).toMillis(), null);
+      }
+      definitions.put(nameService, definition);
+      return definition;
+    } catch (Exception e) {
+      log.warning("No se pudo procesar el WSDL de " + nameService + ": " + e.getMessage());
+      definitions.remove(nameService);
+      return null;
+    }
+  }
+
+  /**
+   * Returns whether a definition parsed from a bundled file is out of date: the definition came from a stored version,
+   * or the file was modified or deleted since it was parsed. The modification time is the one kept in the definition.
+   */
+  private static boolean bundledFileChanged(WsdlDefinition definition) {
+    if (definition.getHash() != null) {
+      return true;
+    }
+    try {
+      Path file = Path.of(WSDL_DIRECTORY, definition.getNameService() + WSDL_EXTENSION);
+      return Files.getLastModifiedTime(file).toMillis() != definition.getLastModified();
+    } catch (IOException e) {
+      return true;
+    }
+  }
+
+  private ArtifactVersion currentVersion(String nameService) {
+    return artifactRepository.current(ArtifactRepository.WSDL, nameService).orElse(null);
+  }
+
+  private WsdlDefinition parse(String nameService, Path file, long lastModified, String hash) throws Exception {
+    // Only the factory is shared; the file is read and parsed outside the lock
+    DocumentBuilder documentBuilder;
+    factoryLock.lock();
+    try {
+      documentBuilder = documentBuilderFactory.newDocumentBuilder();
+    } finally {
+      factoryLock.unlock();
+    }
+    Document document = documentBuilder.parse(file.toFile());
+
+    String soap11Address = firstAttribute(document, SOAP11_NS, "address", "location");
+    String soap12Address = firstAttribute(document, SOAP12_NS, "address", "location");
+    String bindingStyle = firstAttribute(document, SOAP11_NS, "binding", "style");
+    if (bindingStyle == null) {
+      bindingStyle = firstAttribute(document, SOAP12_NS, "binding", "style");
+    }
+
+    String soapVersion = null;
+    if (soap11Address != null && soap12Address != null) {
+      soapVersion = "1.1/1.2";
+    } else if (soap11Address != null) {
+      soapVersion = "1.1";
+    } else if (soap12Address != null) {
+      soapVersion = "1.2";
+    }
+
+    return new WsdlDefinition(
+        nameService,
+        file.toAbsolutePath().toString(),
+        firstAttribute(document, WSDL_NS, "service", "name"),
+        soap11Address,
+        soap12Address,
+        firstAttribute(document, WSDL_NS, "portType", "name"),
+        bindingStyle,
+        soapVersion,
+        lastModified,
+        hash);
+  }
+
+  private static String serviceNameOf(Path file) {
+    String fileName = file.getFileName().toString();
+    return fileName.substring(0, fileName.length() - WSDL_EXTENSION.length());
+  }
+
+  private static String firstAttribute(Document document, String namespace, String localName, String attribute) {
+    NodeList elements = document.getElementsByTagNameNS(namespace, localName);
+    for (int i = 0; i < elements.getLength(); i++) {
+      String value = ((Element) elements.item(i)).getAttribute(attribute);
+      if (!value.isEmpty()) {
+        return value;
+      }
+    }
+    return null;
+  }
+
+  private static DocumentBuilderFactory createDocumentBuilderFactory() {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setNamespaceAware(true);
+    try {
+      factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+    } catch (Exception e) {
+      log.warning("No se pudo activar el procesamiento seguro de XML: " + e.getMessage());
+    }
+    return factory;
+  }
+}
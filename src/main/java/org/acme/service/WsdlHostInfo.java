@@ -1,11 +1,11 @@
 package org.acme.service;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import lombok.extern.java.Log;
+import org.acme.DTOs.WsdlDefinition;
 
 import java.io.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * This class is responsible for retrieving the host from a WSDL file.
@@ -15,67 +15,27 @@ import java.util.regex.Pattern;
 @ApplicationScoped
 @Log
 public class WsdlHostInfo {
-  // Directory where the WSDL files are stored
-  private static final String WSDL_DIRECTORY = "src/main/resources/wsdl/";
+
+  @Inject
+  WsdlCatalog wsdlCatalog;
 
   /**
    * This method is used to get the host from a WSDL file with a specific name.
-   * It first checks for the presence of WSDL files in the WSDL_DIRECTORY.
-   * If a WSDL file with the specified name is found, it retrieves the host from the file.
+   * The host is read from the WsdlCatalog index, so no file is listed or read on each call.
+   * The SOAP 1.1 address is preferred, and the SOAP 1.2 address is used when there is none.
    *
    * @param nameService the name of the service for which to retrieve the host
    * @return the host from the WSDL file, or null if the host could not be found
    * @throws IOException if an error occurs during file reading
    */
   public String getHost(String nameService) throws IOException {
-    var wsdlFiles = new File(WSDL_DIRECTORY).listFiles((dir, name) -> name.endsWith(".wsdl"));
-    if (wsdlFiles == null || wsdlFiles.length == 0) {
-      log.info("Ningún archivo WSDL encontrado");
-      return null;
-    }
-    File desiredWsdlFile = null;
-    for (File file : wsdlFiles) {
-      if (file.getName().equals(nameService + ".wsdl")) {
-        desiredWsdlFile = file;
-        log.info("Se encontró el archivo WSDL deseado: " + nameService);
-        break;
-      }
-    }
-    if (desiredWsdlFile == null) {
+    WsdlDefinition definition = wsdlCatalog.get(nameService).orElse(null);
+    if (definition == null) {
       log.info("No se encontró el archivo WSDL deseado: " + nameService);
       return null;
     }
-
-    // Get the service address from the found WSDL file
-    return getLocationFromWSDLFile(desiredWsdlFile);
-  }
-
-  /**
-   * This method is used to get the location from a WSDL file.
-   * It reads the WSDL file line by line and uses a regular expression to find the location.
-   *
-   * @param wsdlFile the WSDL file to extract the location from
-   * @return the location from the WSDL file, or null if the location could not be found
-   * @throws IOException if an error occurs while reading the file
-   */
-  private String getLocationFromWSDLFile(File wsdlFile) throws IOException {
-    BufferedReader reader = new BufferedReader(new FileReader(wsdlFile));
-    String line;
-    Pattern pattern = Pattern.compile("<soap:address\\s+location=\"(.*?)\"\\s*/>");
-
-    // Search for the service address in the file content
-    while ((line = reader.readLine()) != null) {
-      Matcher matcher = pattern.matcher(line);
-      if (matcher.find()) {
-        // The service address is found in the first group captured by the pattern
-        String location = matcher.group(1);
-        // Close the BufferedReader reader
-        reader.close();
-        return location;
-      }
-    }
-    // Close the BufferedReader reader
-    reader.close();
-    return null;
+    return definition.getSoap11Address() != null
+        ? definition.getSoap11Address()
+        : definition.getSoap12Address();
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,430 @@
+package org.acme.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.ErrorListener;
+import javax.xml.transform.SourceLocator;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stax.StAXSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import lombok.extern.java.Log;
+import org.acme.DTOs.ArtifactVersion;
+import org.acme.DTOs.XsltCacheStats;
+import org.acme.DTOs.XsltWarmupStats;
+import org.apache.camel.Exchange;
+
+/**
+ * This class is responsible for caching the compiled XSLT stylesheets used by the proxy routes.
+ * Each entry is keyed by the service name and remembers the SHA-256 hash of the stylesheet it was compiled from,
+ * so a stylesheet is compiled once per version instead of once per endpoint creation.
+ * Uploaded stylesheets are compiled, validated and warmed up before their version is stored, and then published
+ * to the running routes, so the first request after an upload does not pay for the compilation.
+ * It is annotated with @ApplicationScoped, meaning a single instance will be created for the entire application.
+ */
+@ApplicationScoped
+@Log
+public class XsltTemplateCache {
+
+  // Directory of the XSLT files bundled with the application
+  private static final String XSLT_DIRECTORY = "src/main/resources/xslt/";
+  // Request bodies come from the clients of the proxy, so they are parsed without DTDs or external entities
+  private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+  private final int maxEntries =
+      Integer.parseInt(System.getenv().getOrDefault("XSLT_CACHE_MAX_ENTRIES", "256"));
+
+  String warmupDirectory = System.getenv().getOrDefault("XSLT_WARMUP_DIRECTORY", "src/main/resources/xslt-samples");
+  int warmupIterations = Integer.parseInt(System.getenv().getOrDefault("XSLT_WARMUP_ITERATIONS", "20"));
+
+  @Inject
+  ArtifactRepository artifactRepository;
+
+  private final TransformerFactory transformerFactory = createTransformerFactory();
+  // TransformerFactory is not thread-safe; a ReentrantLock instead of synchronized so waiting threads are not pinned
+  private final ReentrantLock factoryLock = new ReentrantLock();
+  private final Map<String, CompiledXslt> cache = new ConcurrentHashMap<>();
+  private final Map<String, XsltWarmupStats> warmups = new ConcurrentHashMap<>();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong compileNanos = new AtomicLong();
+
+  /**
+   * This method applies the stylesheet of a service to the body of an Exchange.
+   * A null body is left untouched, in the same way as the xslt component with failOnNullBody=false.
+   * The body is parsed with DTDs and external entities disabled before it reaches the stylesheet.
+   *
+   * @param nameService the name of the service whose stylesheet must be applied
+   * @param exchange    the Exchange whose body will be transformed
+   * @throws Exception if the stylesheet cannot be loaded or the transformation fails
+   */
+  public void transform(String nameService, Exchange exchange) throws Exception {
+    String body = exchange.getIn().getBody(String.class);
+    if (body == null) {
+      return;
+    }
+
+    StringWriter writer = new StringWriter();
+    XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(new StringReader(body));
+    try {
+      getTemplates(nameService).newTransformer().transform(new StAXSource(reader), new StreamResult(writer));
+    } finally {
+      reader.close();
+    }
+    exchange.getIn().setBody(writer.toString());
+  }
+
+  /**
+   * This method returns the compiled stylesheet of a service.
+   * The stylesheet is the current version stored in the ArtifactRepository, read without a copy from the store,
+   * and the file bundled under src/main/resources/xslt/ is used when the service has no stored version.
+   * A bundled file is only read again when its modification time changes, and a stylesheet is only compiled again
+   * when its content hash changes.
+   *
+   * @param nameService the name of the service
+   * @return the compiled stylesheet
+   * @throws IOException                       if the XSLT file cannot be read
+   * @throws TransformerConfigurationException if the XSLT file cannot be compiled
+   */
+  public Templates getTemplates(String nameService) throws IOException, TransformerConfigurationException {
+    ArtifactVersion current = artifactRepository.current(ArtifactRepository.XSLT, nameService).orElse(null);
+    if (current != null) {
+      CompiledXslt cached = cache.get(nameService);
+      if (cached != null && cached.hash.equals(current.getHash())) {
+        hits.incrementAndGet();
+        cached.lastAccess = System.nanoTime();
+        return cached.templates;
+      }
+      misses.incrementAndGet();
+      StreamSource source = new StreamSource(new ByteBufferInputStream(artifactRepository.read(current)));
+      source.setSystemId("artifact:" + ArtifactRepository.XSLT + "/" + nameService + "/" + current.getVersion());
+      Templates templates = compile(source);
+      evictIfFull(nameService);
+      cache.put(nameService, new CompiledXslt(current.getHash(), current.getCreatedAt(), templates));
+      log.info("XSLT compilado para el servicio " + nameService + ", versión " + current.getVersion()
+          + " (" + current.getHash() + ")");
+      return templates;
+    }
+
+    Path xsltFile = Path.of(XSLT_DIRECTORY, nameService + ".xslt");
+    long lastModified;
+    try {
+      lastModified = Files.getLastModifiedTime(xsltFile).toMillis();
+    } catch (NoSuchFileException e) {
+      throw new FileNotFoundException("El archivo XSLT no se encontró en la ruta: " + xsltFile);
+    }
+
+    CompiledXslt cached = cache.get(nameService);
+    if (cached != null && cached.lastModified == lastModified) {
+      hits.incrementAndGet();
+      cached.lastAccess = System.nanoTime();
+      return cached.templates;
+    }
+
+    byte[] content = Files.readAllBytes(xsltFile);
+    String hash = sha256(content);
+    if (cached != null && cached.hash.equals(hash)) {
+      hits.incrementAndGet();
+      cache.put(nameService, new CompiledXslt(hash, lastModified, cached.templates));
+      return cached.templates;
+    }
+
+    misses.incrementAndGet();
+    StreamSource source = new StreamSource(new ByteArrayInputStream(content));
+    source.setSystemId(xsltFile.toUri().toString());
+    Templates templates = compile(source);
+    evictIfFull(nameService);
+    cache.put(nameService, new CompiledXslt(hash, lastModified, templates));
+    log.info("XSLT compilado para el servicio " + nameService + " (" + hash + ")");
+    return templates;
+  }
+
+  /**
+   * This method compiles an uploaded stylesheet before its version is stored, so a broken one is never used.
+   * The compilation errors are reported with their line and column. When there are sample messages for the service
+   * under XSLT_WARMUP_DIRECTORY/{nameService}/, each one is transformed XSLT_WARMUP_ITERATIONS times to warm up
+   * the JIT, and a sample that fails to transform rejects the stylesheet as well. The timings are kept for getWarmups.
+   *
+   * @param nameService the name of the service
+   * @param staged      the uploaded file
+   * @param hash        the SHA-256 hash of the file
+   * @return the compiled stylesheet, to be handed to publish once its version is stored
+   * @throws IOException             if the file or the samples cannot be read
+   * @throws XsltValidationException if the stylesheet does not compile or fails on a sample
+   */
+  public Templates precompile(String nameService, Path staged, String hash) throws IOException {
+    DiagnosticsListener listener = new DiagnosticsListener();
+    StreamSource source = new StreamSource(staged.toFile());
+    long start = System.nanoTime();
+    Templates templates;
+    try {
+      templates = compile(source, listener);
+    } catch (TransformerConfigurationException e) {
+      if (listener.diagnostics.isEmpty()) {
+        listener.diagnostics.add(describe(e));
+      }
+      throw new XsltValidationException(nameService, listener.diagnostics);
+    }
+    long compileMillis = (System.nanoTime() - start) / 1_000_000;
+
+    List<Path> samples = warmupSamples(nameService);
+    long firstRunNanos = 0;
+    long totalRunNanos = 0;
+    long runs = 0;
+    long warmupStart = System.nanoTime();
+    for (int iteration = 0; iteration < warmupIterations && !samples.isEmpty(); iteration++) {
+      for (Path sample : samples) {
+        long runStart = System.nanoTime();
+        try {
+          templates.newTransformer()
+              .transform(new StreamSource(sample.toFile()), new StreamResult(Writer.nullWriter()));
+        } catch (TransformerException e) {
+          throw new XsltValidationException(nameService,
+              List.of("muestra " + sample.getFileName() + ": " + describe(e)));
+        }
+        long elapsed = System.nanoTime() - runStart;
+        if (runs == 0) {
+          firstRunNanos = elapsed;
+        } else {
+          totalRunNanos += elapsed;
+        }
+        runs++;
+      }
+    }
+
+    XsltWarmupStats stats = new XsltWarmupStats(nameService, hash, compileMillis, samples.size(),
+        runs > 0 ? warmupIterations : 0, firstRunNanos / 1000, runs > 1 ? totalRunNanos / (runs - 1) / 1000 : 0,
+        (System.nanoTime() - warmupStart) / 1_000_000, System.currentTimeMillis());
+    warmups.put(nameService, stats);
+    log.info("XSLT de " + nameService + " compilado en " + compileMillis + " ms y calentado con " + runs
+        + " transformaciones en " + stats.getWarmupMillis() + " ms");
+    return templates;
+  }
+
+  /**
+   * This method makes a precompiled stylesheet the one used by the running routes of its service.
+   *
+   * @param nameService the name of the service
+   * @param version     the stored version of the stylesheet
+   * @param templates   the stylesheet returned by precompile
+   */
+  public void publish(String nameService, ArtifactVersion version, Templates templates) {
+    evictIfFull(nameService);
+    cache.put(nameService, new CompiledXslt(version.getHash(), version.getCreatedAt(), templates));
+    log.info("XSLT publicado para el servicio " + nameService + ", versión " + version.getVersion());
+  }
+
+  /**
+   * This method returns the compilation and warm-up timings of the last stylesheet uploaded for each service.
+   *
+   * @return the timings, ordered by service name
+   */
+  public List<XsltWarmupStats> getWarmups() {
+    return new ArrayList<>(new TreeMap<>(warmups).values());
+  }
+
+  /**
+   * This method removes the compiled stylesheet of a service, forcing the next call to compile it again.
+   *
+   * @param nameService the name of the service
+   */
+  public void invalidate(String nameService) {
+    if (cache.remove(nameService) != null) {
+      log.info("XSLT invalidado para el servicio " + nameService);
+    }
+  }
+
+  /**
+   * This method returns the current hit, miss and compilation time counters of the cache.
+   *
+   * @return the cache statistics
+   */
+  public XsltCacheStats getStats() {
+    return new XsltCacheStats(cache.size(), hits.get(), misses.get(), compileNanos.get() / 1_000_000);
+  }
+
+  private Templates compile(StreamSource source) throws TransformerConfigurationException {
+    return compile(source, new DiagnosticsListener());
+  }
+
+  private Templates compile(StreamSource source, DiagnosticsListener listener)
+      throws TransformerConfigurationException {
+    long start = System.nanoTime();
+    try {
+      factoryLock.lock();
+      try {
+        transformerFactory.setErrorListener(listener);
+        return transformerFactory.newTemplates(source);
+      } finally {
+        factoryLock.unlock();
+      }
+    } finally {
+      compileNanos.addAndGet(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Creates the factory that compiles the stylesheets with secure processing, which turns off the Java extension
+   * functions, and without access to external DTDs or stylesheets.
+   */
+  private static TransformerFactory createTransformerFactory() {
+    TransformerFactory factory = TransformerFactory.newInstance();
+    try {
+      factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+    } catch (TransformerConfigurationException e) {
+      log.warning("No se pudo activar el procesamiento seguro de XSLT: " + e.getMessage());
+    }
+    factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+    factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+    return factory;
+  }
+
+  private static XMLInputFactory createXmlInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
+  private List<Path> warmupSamples(String nameService) throws IOException {
+    Path directory = Path.of(warmupDirectory, nameService);
+    if (warmupIterations <= 0 || !Files.isDirectory(directory)) {
+      return List.of();
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(file -> file.getFileName().toString().endsWith(".xml")).sorted().toList();
+    }
+  }
+
+  /**
+   * Describes an error with its line and column when the processor gives a locator; the JDK processor already
+   * puts the line in the message instead.
+   */
+  private static String describe(TransformerException e) {
+    SourceLocator locator = e.getLocator();
+    String message = e.getMessage();
+    if (locator != null && locator.getLineNumber() > 0) {
+      return "línea " + locator.getLineNumber() + ", columna " + locator.getColumnNumber() + ": " + message;
+    }
+    return message;
+  }
+
+  private void evictIfFull(String nameService) {
+    if (cache.size() < maxEntries || cache.containsKey(nameService)) {
+      return;
+    }
+    cache.entrySet().stream()
+        .min((a, b) -> Long.compare(a.getValue().lastAccess, b.getValue().lastAccess))
+        .ifPresent(eldest -> cache.remove(eldest.getKey(), eldest.getValue()));
+  }
+
+  private static String sha256(byte[] content) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Reads a stored stylesheet straight from its buffer, which is a memory mapping with the local store.
+   */
+  private static final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    private ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer.duplicate();
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+  }
+
+  /**
+   * Collects the errors reported while a stylesheet is compiled.
+   */
+  private static final class DiagnosticsListener implements ErrorListener {
+    private final List<String> diagnostics = new ArrayList<>();
+
+    @Override
+    public void warning(TransformerException exception) {
+      log.fine("Advertencia XSLT: " + describe(exception));
+    }
+
+    @Override
+    public void error(TransformerException exception) {
+      add(exception);
+    }
+
+    @Override
+    public void fatalError(TransformerException exception) throws TransformerException {
+      add(exception);
+      throw exception;
+    }
+
+    private void add(TransformerException exception) {
+      // The JDK processor reports the last error again as fatal
+      String diagnostic = describe(exception);
+      if (!diagnostics.contains(diagnostic)) {
+        diagnostics.add(diagnostic);
+      }
+    }
+  }
+
+  private static final class CompiledXslt {
+    private final String hash;
+    private final long lastModified;
+    private final Templates templates;
+    private volatile long lastAccess = System.nanoTime();
+
+    private CompiledXslt(String hash, long lastModified, Templates templates) {
+      this.hash = hash;
+      this.lastModified = lastModified;
+      this.templates = templates;
+    }
+  }
+}
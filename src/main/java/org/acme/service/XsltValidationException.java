@@ -0,0 +1,27 @@
+package org.acme.service;
+
+import java.util.List;
+
+/**
+ * This exception is thrown when an uploaded XSLT cannot be compiled, or fails on one of its warm-up samples.
+ * It carries one diagnostic per error, with its line and column when the processor reports them.
+ */
+public class XsltValidationException extends IllegalArgumentException {
+
+  private final List<String> diagnostics;
+
+  /**
+   * Constructor for the XsltValidationException class.
+   *
+   * @param nameService the name of the service of the stylesheet
+   * @param diagnostics the errors found
+   */
+  public XsltValidationException(String nameService, List<String> diagnostics) {
+    super("XSLT no válido para " + nameService + ": " + String.join("; ", diagnostics));
+    this.diagnostics = List.copyOf(diagnostics);
+  }
+
+  public List<String> getDiagnostics() {
+    return diagnostics;
+  }
+}
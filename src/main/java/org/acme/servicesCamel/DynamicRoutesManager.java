@@ -1,27 +1,47 @@
 package org.acme.servicesCamel;
 
-import com.mongodb.client.MongoClient;
-import com.mongodb.client.MongoCollection;
-import io.quarkus.runtime.StartupEvent;
-import io.vertx.mutiny.core.Vertx;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import lombok.extern.java.Log;
 import org.acme.DTOs.*;
+import org.acme.configurations.AdminExecutor;
+import org.acme.configurations.BackendCircuitBreakers;
+import org.acme.configurations.BackendConnectionPools;
 import org.acme.configurations.ConsulRegistration;
+import org.acme.configurations.MessageCompression;
 import org.acme.configurations.RouteStopException;
 import org.acme.configurations.XstlChange;
 
 import org.acme.controllers.DeleteRoutesResource;
 import org.acme.routes.BaseCamelRoute;
+import org.acme.routes.ProxyRouteSupport;
+import org.acme.routes.RouteVersions;
 import org.acme.routes.XstlRouteTransform;
 import org.acme.service.SoapServiceConfiguration;
 import org.acme.service.TypeSoapService;
+import org.acme.service.RequestCoalescer;
+import org.acme.service.ResponseCache;
+import org.acme.service.RouteMetrics;
+import org.acme.service.ServiceRepository;
 import org.acme.service.UrlParser;
+import org.acme.service.WsdlCatalog;
 import org.acme.service.WsdlHostInfo;
 import org.apache.camel.CamelContext;
 import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
 import org.bson.Document;
 import org.slf4j.Logger;
 
@@ -38,6 +58,12 @@ public class DynamicRoutesManager {
 
   Logger logger= org.slf4j.LoggerFactory.getLogger(DynamicRoutesManager.class);
 
+  static final Duration CONSUL_TIMEOUT = Duration.ofSeconds(30);
+
+  // Un lock por servicio para que dos cambios del mismo servicio no se mezclen; ReentrantLock en lugar de
+  // synchronized para no bloquear el hilo portador mientras se espera a Camel
+  private final Map<String, ReentrantLock> serviceLocks = new ConcurrentHashMap<>();
+
   /**
    * Inyección de dependencias
    */
@@ -64,7 +90,7 @@ public class DynamicRoutesManager {
   TypeSoapService typeSoapService;
 
   @Inject
-  MongoClient mongoClient;
+  ServiceRepository serviceRepository;
 
   @Inject
   DeleteRoutesResource deleteRoutesResource;
@@ -72,6 +98,42 @@ public class DynamicRoutesManager {
   @Inject
   ConsulRegistration consulRegistration;
 
+  @Inject
+  WsdlCatalog wsdlCatalog;
+
+  @Inject
+  RouteLifecycle routeLifecycle;
+
+  @Inject
+  ProxyRouteSupport proxyRouteSupport;
+
+  @Inject
+  RouteVersions routeVersions;
+
+  @Inject
+  BackendConnectionPools backendConnectionPools;
+
+  @Inject
+  BackendCircuitBreakers backendCircuitBreakers;
+
+  @Inject
+  MessageCompression messageCompression;
+
+  @Inject
+  RouteMetrics routeMetrics;
+
+  @Inject
+  AdminExecutor adminExecutor;
+
+  @Inject
+  LazyRouteActivation lazyRouteActivation;
+
+  @Inject
+  ResponseCache responseCache;
+
+  @Inject
+  RequestCoalescer requestCoalescer;
+
 
 
 
@@ -104,22 +166,263 @@ public class DynamicRoutesManager {
    */
 
   public void addSoapRoute(ModifyDataHots routeDto) throws Exception {
+    Optional<Document> storedService = serviceRepository.findByName(routeDto.getNameService());
+    XstlRouteTransform dynamicRoute = replaceSoapRoute(routeDto, storedService.isPresent(), storedService);
 
-    Document query = new Document("nameService", routeDto.getNameService());
-    log.info("Query: " + query);
-    Document result = (Document) getCollection().find(query).first();
+    // Registrar el servicio en Consul
+    registerInConsul(dynamicRoute.getNameService(), dynamicRoute.getPort()).await().atMost(CONSUL_TIMEOUT);
+  }
 
-    if (result != null) {
-      log.info("La ruta está presente y será borrada////////////////////////////////////////////////////////////////////////////////////////////////////////////////");
+  /**
+   * Método para agregar una ruta SOAP sin bloquear el hilo que llama
+   * La consulta a Mongo y el registro en Consul no ocupan un hilo; solo la creación de la ruta en Camel
+   * se ejecuta en el pool de workers.
+   *
+   * @param routeDto Los datos de la ruta
+   * @return Un Uni que termina cuando la ruta está creada y registrada
+   */
+
+  public Uni<Void> addSoapRouteReactive(ModifyDataHots routeDto) {
+    return serviceRepository.findByNameReactive(routeDto.getNameService())
+        .chain(result -> blocking(() -> replaceSoapRoute(routeDto, result.isPresent(), result)))
+        .chain(dynamicRoute -> registerInConsul(dynamicRoute.getNameService(), dynamicRoute.getPort()));
+  }
+
+  /**
+   * Método para reemplazar la ruta SOAP de un servicio
+   * Si la ruta principal del servicio ya está corriendo con el mismo WSDL, solo se agrega una nueva versión de la
+   * ruta del backend, el tráfico se cambia a ella de forma atómica y la versión anterior se drena y se elimina,
+   * sin que el endpoint deje de atender peticiones. En otro caso se eliminan las rutas y se crean de nuevo.
+   * Las políticas enviadas en la petición se guardan con el servicio en Mongo una vez que la ruta está activa.
+   *
+   * @param routeDto      Los datos de la ruta
+   * @param exists        Si el servicio ya estaba registrado
+   * @param storedService El documento del servicio guardado en Mongo, ya leído por quien llama
+   * @return La ruta agregada
+   * @throws Exception Si ocurre un error al agregar la ruta
+   */
+  private XstlRouteTransform replaceSoapRoute(ModifyDataHots routeDto, boolean exists,
+                                              Optional<Document> storedService) throws Exception {
+    ReentrantLock lock = lockService(routeDto.getNameService());
+    try {
+      boolean hotSwap = canHotSwap(routeDto);
+      if (exists && !hotSwap) {
+        log.info("La ruta está presente y será borrada");
+        routeLifecycle.removeRouteGroup(routeDto.getNameService());
+      }
 
+      XstlRouteTransform dynamicRoute = buildSoapRoute(routeDto, hotSwap, storedService);
+
+      // Crear la nueva ruta
       try {
-        stopRouteAction(routeDto.getNameService());
-        camelContext.removeRoute(routeDto.getNameService());
-        log.info("Ruta detenida y eliminada exitosamente: " + routeDto.getNameService());
+        camelContext.addRoutes(dynamicRoute);
+        log.info("Ruta agregada exitosamente: " + dynamicRoute.getUriLocal());
       } catch (Exception e) {
-        log.info("Error al detener y eliminar la ruta: " + routeDto.getNameService()+e);
-        throw new RouteStopException("Error al detener y eliminar la ruta: " + e.getMessage()+ e);
+        log.info("Error al agregar la nueva ruta: " + dynamicRoute.getUriLocal() + e);
+        throw new Exception("Error al agregar la nueva ruta: " + e.getMessage(), e);
       }
+      activate(dynamicRoute);
+
+      // Las políticas de la petición se guardan con el servicio para que la restauración las vuelva a aplicar
+      Document policies = ServiceRepository.policies(routeDto);
+      if (!policies.isEmpty()) {
+        serviceRepository.upsert(routeDto.getNameService(), policies);
+      }
+      return dynamicRoute;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Método para saber si la ruta de un servicio se puede actualizar sin detener su endpoint
+   *
+   * @param routeDto Los datos de la ruta
+   * @return true si la ruta principal está corriendo, tiene una versión activa, su WSDL no cambió y la petición
+   * no cambia el modo asíncrono de su endpoint
+   */
+  private boolean canHotSwap(ModifyDataHots routeDto) {
+    String nameService = routeDto.getNameService();
+    Long wsdlVersion = routeVersions.wsdlVersion(nameService);
+    Boolean asyncProxy = routeDto.getConnectionPolicy() != null ? routeDto.getConnectionPolicy().getAsyncProxy() : null;
+    return camelContext.getRoute(nameService) != null
+        && routeVersions.activeRouteId(nameService) != null
+        && wsdlVersion != null
+        && wsdlCatalog.get(nameService).map(definition -> definition.getLastModified() == wsdlVersion).orElse(false)
+        && (asyncProxy == null || asyncProxy.equals(routeVersions.asyncConsumer(nameService)));
+  }
+
+  /**
+   * Método para cambiar el tráfico de un servicio a la versión recién agregada de su ruta
+   * La versión anterior, si existe, se drena y se elimina.
+   *
+   * @param dynamicRoute La ruta agregada
+   * @throws RouteStopException Si la versión anterior no se puede eliminar
+   */
+  private void activate(XstlRouteTransform dynamicRoute) throws RouteStopException {
+    String nameService = dynamicRoute.getNameService();
+    String previous = routeVersions.activate(nameService, dynamicRoute.getVersion());
+    long switchedAt = System.currentTimeMillis();
+    log.info("Tráfico de " + nameService + " cambiado a la versión " + dynamicRoute.getVersion());
+
+    if (previous != null && camelContext.getRoute(previous) != null) {
+      // Las respuestas guardadas pueden ser del backend o de la transformación anterior
+      responseCache.purge(nameService);
+      routeLifecycle.drainAndRemove(nameService, previous, switchedAt);
+    }
+  }
+
+  /**
+   * Método para agregar varias rutas SOAP en una sola operación
+   * Los servicios existentes se buscan con una sola consulta $in, todas las rutas se agregan en un solo addRoutes
+   * y el registro en Consul se hace en paralelo. Las políticas enviadas se guardan con una sola escritura en bloque.
+   * Cada servicio informa su propio resultado.
+   *
+   * @param routeDtos Los datos de las rutas
+   * @return El resultado de cada servicio, en el mismo orden de la petición
+   */
+
+  public List<RouteProvisionResult> addSoapRoutes(List<ModifyDataHots> routeDtos) {
+    Map<String, RouteProvisionResult> results = new LinkedHashMap<>();
+    routeDtos.forEach(routeDto -> results.put(routeDto.getNameService(),
+        new RouteProvisionResult(routeDto.getNameService(), false, null)));
+
+    // Los mismos locks que los cambios de un solo servicio, hasta que el tráfico pasa a las nuevas versiones
+    Map<String, ReentrantLock> locks = lockServices(results.keySet());
+    List<XstlRouteTransform> activeRoutes;
+    try {
+      activeRoutes = provisionSoapRoutes(routeDtos, results);
+    } finally {
+      unlockServices(locks);
+    }
+
+    // Registrar en Consul en paralelo
+    List<Uni<Void>> registrations = activeRoutes.stream()
+        .map(dynamicRoute -> {
+          RouteProvisionResult result = results.get(dynamicRoute.getNameService());
+          return registerInConsul(dynamicRoute.getNameService(), dynamicRoute.getPort())
+              .invoke(() -> {
+                result.setSuccess(true);
+                result.setMessage("ruta creada correctamente");
+              })
+              .onFailure().invoke(e -> result.setMessage(e.getMessage()))
+              .onFailure().recoverWithNull();
+        })
+        .toList();
+    if (!registrations.isEmpty()) {
+      Uni.join().all(registrations).andFailFast().await().atMost(CONSUL_TIMEOUT);
+    }
+
+    return new ArrayList<>(results.values());
+  }
+
+  /**
+   * Método para preparar, agregar y activar las rutas de varios servicios, con sus locks ya tomados
+   *
+   * @param routeDtos Los datos de las rutas
+   * @param results   El resultado de cada servicio, donde se anotan los errores
+   * @return Las rutas que quedaron activas
+   */
+  private List<XstlRouteTransform> provisionSoapRoutes(List<ModifyDataHots> routeDtos,
+                                                       Map<String, RouteProvisionResult> results) {
+    // Buscar todos los servicios existentes en una sola consulta; sus documentos traen también sus políticas
+    Map<String, Document> storedServices = serviceRepository.findByNames(results.keySet());
+
+    // Preparar las rutas, aislando los errores de cada servicio
+    List<XstlRouteTransform> dynamicRoutes = new ArrayList<>();
+    for (ModifyDataHots routeDto : routeDtos) {
+      try {
+        boolean hotSwap = canHotSwap(routeDto);
+        Optional<Document> storedService = Optional.ofNullable(storedServices.get(routeDto.getNameService()));
+        if (storedService.isPresent() && !hotSwap) {
+          routeLifecycle.removeRouteGroup(routeDto.getNameService());
+        }
+        dynamicRoutes.add(buildSoapRoute(routeDto, hotSwap, storedService));
+      } catch (Exception e) {
+        results.get(routeDto.getNameService()).setMessage("Error al preparar la ruta: " + e.getMessage());
+      }
+    }
+
+    // Agregar todas las rutas en un solo paso; el arranque se hace una vez que todas están definidas
+    List<XstlRouteTransform> addedRoutes = new ArrayList<>();
+    try {
+      camelContext.addRoutes(new RouteBuilder() {
+        @Override
+        public void configure() throws Exception {
+          for (XstlRouteTransform dynamicRoute : dynamicRoutes) {
+            includeRoutes(dynamicRoute);
+          }
+        }
+      });
+      addedRoutes.addAll(dynamicRoutes);
+    } catch (Exception e) {
+      log.info("Error al agregar las rutas en bloque, se agregan una por una: " + e);
+      for (XstlRouteTransform dynamicRoute : dynamicRoutes) {
+        try {
+          if (dynamicRoute.isBackendOnly()) {
+            routeLifecycle.removeRoute(RouteVersions.routeId(dynamicRoute.getNameService(), dynamicRoute.getVersion()));
+          } else {
+            routeLifecycle.removeRouteGroup(dynamicRoute.getNameService());
+          }
+          camelContext.addRoutes(dynamicRoute);
+          addedRoutes.add(dynamicRoute);
+        } catch (Exception routeException) {
+          results.get(dynamicRoute.getNameService())
+              .setMessage("Error al agregar la nueva ruta: " + routeException.getMessage());
+        }
+      }
+    }
+
+    // Cambiar el tráfico a las nuevas versiones
+    List<XstlRouteTransform> activeRoutes = new ArrayList<>();
+    for (XstlRouteTransform dynamicRoute : addedRoutes) {
+      try {
+        activate(dynamicRoute);
+        activeRoutes.add(dynamicRoute);
+      } catch (RouteStopException e) {
+        results.get(dynamicRoute.getNameService())
+            .setMessage("Error al retirar la versión anterior de la ruta: " + e.getMessage());
+      }
+    }
+
+    // Guardar las políticas de las rutas activas en una sola escritura, para que la restauración las vuelva a aplicar
+    Map<String, Document> policies = new LinkedHashMap<>();
+    for (ModifyDataHots routeDto : routeDtos) {
+      Document fields = ServiceRepository.policies(routeDto);
+      boolean active = activeRoutes.stream()
+          .anyMatch(dynamicRoute -> dynamicRoute.getNameService().equals(routeDto.getNameService()));
+      if (active && !fields.isEmpty()) {
+        policies.put(routeDto.getNameService(), fields);
+      }
+    }
+    try {
+      serviceRepository.upsertAll(policies);
+    } catch (Exception e) {
+      // Sin sus políticas guardadas la ruta no se restauraría igual, así que el servicio se informa con error
+      log.warning("No se pudieron guardar las políticas de los servicios " + policies.keySet() + ": " + e);
+      activeRoutes.removeIf(dynamicRoute -> policies.containsKey(dynamicRoute.getNameService()));
+      policies.keySet().forEach(nameService -> results.get(nameService)
+          .setMessage("Error al guardar las políticas del servicio: " + e.getMessage()));
+    }
+    return activeRoutes;
+  }
+
+  /**
+   * Método para construir la ruta SOAP de un servicio
+   * Cada ruta construida recibe un número de versión nuevo para su ruta del backend.
+   *
+   * @param routeDto      Los datos de la ruta
+   * @param backendOnly   Si solo se construye la ruta del backend, junto a una ruta principal que ya está corriendo
+   * @param storedService El documento del servicio guardado en Mongo, de donde se leen las políticas que la
+   *                      petición no envía
+   * @return La ruta, lista para agregarse al CamelContext
+   * @throws Exception Si no se puede leer el WSDL del servicio
+   */
+  private XstlRouteTransform buildSoapRoute(ModifyDataHots routeDto, boolean backendOnly,
+                                            Optional<Document> storedService) throws Exception {
+    WsdlDefinition wsdlDefinition = wsdlCatalog.get(routeDto.getNameService()).orElse(null);
+    if (wsdlDefinition == null) {
+      throw new Exception("No se encontró el archivo WSDL deseado: " + routeDto.getNameService());
     }
 
     // Parse URL and prepare route details
@@ -130,46 +433,83 @@ public class DynamicRoutesManager {
     String path = getValueOrDefault(routeDto.getPathService(), net.getPath());
     String uriLocal = routeDto.getNameService();
     String nameService = routeDto.getNameService();
-    String soapversion = typeSoapService.getHosts().toString();
 
     log.info("Preparando para agregar una nueva ruta: " + uriLocal);
 
     // Obtener la clase de servicio SOAP
-    String serviceClass = soapServiceConfiguration.getHost();
+    String serviceClass = soapServiceConfiguration.getHost(nameService);
     log.info("Clase de servicio: " + serviceClass);
+    log.info("Detalles de la ruta: uriLocal=" + uriLocal + ", nameService=" + nameService + ", protocol=" + protocol + ", host=" + host + ", port=" + port + ", path=" + path);
 
-    // Crear la nueva ruta
-    try {
-      XstlRouteTransform dynamicRoute = new XstlRouteTransform(uriLocal, nameService, protocol, host, port, path);
-      camelContext.addRoutes(dynamicRoute);
-      log.info("Ruta agregada exitosamente: " + uriLocal);
-    } catch (Exception e) {
-      log.info("Error al agregar la nueva ruta: " + uriLocal + e);
-      throw new Exception("Error al agregar la nueva ruta: " + e.getMessage(), e);
+    // Política de conexión enviada en la petición o guardada con el servicio
+    ConnectionPolicy connectionPolicy = backendConnectionPools.resolve(routeDto.getConnectionPolicy(), storedService);
+    ResponseCachePolicy responseCachePolicy = responseCache.resolve(routeDto.getResponseCache(), storedService);
+    CircuitBreakerPolicy circuitBreakerPolicy =
+        backendCircuitBreakers.resolve(routeDto.getCircuitBreaker(), storedService);
+    boolean singleFlight = requestCoalescer.resolve(routeDto.getSingleFlight(), storedService);
+    CompressionPolicy compressionPolicy = messageCompression.resolve(routeDto.getCompression(), storedService);
+
+    if (!backendOnly) {
+      routeVersions.setWsdlVersion(nameService, wsdlDefinition.getLastModified());
+      routeVersions.setAsyncConsumer(nameService, connectionPolicy.getAsyncProxy());
     }
+    return new XstlRouteTransform(uriLocal, nameService, protocol, host, port, path, proxyRouteSupport,
+        routeVersions.nextVersion(), backendOnly, connectionPolicy, responseCachePolicy,
+        circuitBreakerPolicy, singleFlight, compressionPolicy);
+  }
 
-    // Registrar el servicio en Consul
+  /**
+   * Método para crear la ruta de un servicio registrado para activación diferida
+   * No registra el servicio en Consul, porque ya se registró con su marcador.
+   *
+   * @param routeDto Los datos de la ruta
+   * @throws Exception Si ocurre un error al agregar la ruta
+   */
+  void loadRoute(ModifyDataHots routeDto) throws Exception {
+    replaceSoapRoute(routeDto, false, serviceRepository.findByName(routeDto.getNameService()));
+  }
+
+  /**
+   * Método para eliminar las rutas de un servicio inactivo sin borrarlo del catálogo ni de Consul
+   *
+   * @param nameService El nombre del servicio
+   * @throws RouteStopException Si las rutas no se pueden detener o eliminar
+   */
+  void unloadRoute(String nameService) throws RouteStopException {
+    ReentrantLock lock = lockService(nameService);
     try {
-      ConsulRegistration consulRegistration = new ConsulRegistration();
-      consulRegistration.setId(nameService + "-" + port);
-      consulRegistration.setName(nameService);
-      consulRegistration.setTags1(soapversion);
-      consulRegistration.setTags2("soap");
-
-      Vertx vertx = Vertx.vertx();
-      StartupEvent startupEvent = new StartupEvent();
-      consulRegistration.init(startupEvent, vertx);
-      log.info("Servicio registrado en Consul: " + nameService);
-    } catch (Exception e) {
-      log.info("Error al registrar el servicio en Consul: " + nameService + e);
-      throw new Exception("Error al registrar el servicio en Consul: " + e.getMessage(), e);
+      routeLifecycle.removeRouteGroup(nameService);
+    } finally {
+      lock.unlock();
     }
+  }
 
-    log.info("Detalles de la ruta: uriLocal=" + uriLocal + ", nameService=" + nameService + ", protocol=" + protocol + ", host=" + host + ", port=" + port + ", path=" + path);
+  /**
+   * Método para registrar en Consul un servicio cuya ruta todavía no se crea
+   *
+   * @param routeDto Los datos de la ruta
+   * @return Un Uni que termina cuando el servicio queda registrado
+   */
+  Uni<Void> registerPlaceholder(ModifyDataHots routeDto) {
+    Net net = urlParser.parseUrl(wsdlHostInfo.getHost(routeDto.getNameService()));
+    return registerInConsul(routeDto.getNameService(), getValueOrDefault(routeDto.getPortService(), net.getPort()));
   }
 
-  private MongoCollection getCollection(){
-    return mongoClient.getDatabase("Service").getCollection("service");
+  /**
+   * Método para registrar un servicio en Consul
+   *
+   * @param nameService El nombre del servicio
+   * @param port        El puerto del servicio
+   * @return Un Uni que termina cuando el servicio queda registrado
+   */
+  private Uni<Void> registerInConsul(String nameService, String port) {
+    List<String> tags = List.of(typeSoapService.getHosts(nameService).toString(), "soap");
+    return consulRegistration.registerService(nameService, nameService + "-" + port, tags)
+        .invoke(() -> log.info("Servicio registrado en Consul: " + nameService))
+        .onFailure().transform(e -> {
+          log.info("Error al registrar el servicio en Consul: " + nameService + e);
+          return new Exception("Error al registrar el servicio en Consul: " + e.getMessage(), e);
+        });
   }
 
 
@@ -186,42 +526,25 @@ public class DynamicRoutesManager {
   }
 
   /**
-   * Método para detener una ruta
+   * Método para activar o desactivar la transformación XSLT de una ruta
+   * El cambio se aplica sin detener la ruta y no afecta a las demás rutas
    *
    * @param xstlValue El valor XSTL
    */
 
-  public void stopRoute(XstlValue xstlValue) throws RouteStopException {
+  public void setTransformation(XstlValue xstlValue) throws RouteStopException {
     String rutaId = xstlValue.getRouteId();
     String xstl = xstlValue.getXstlValue();
 
-
-
-    // Detener la ruta
-    try {
-      stopRouteAction(rutaId);
-    } catch (Exception e) {
-      throw new RouteStopException("Error al detener la ruta: " + e.getMessage());
+    if (rutaId == null || rutaId.isEmpty()) {
+      throw new RouteStopException("El ID de la ruta es obligatorio");
     }
 
     // Aplicar transformación si se proporciona un valor XSTL válido
     if (xstl != null && !xstl.isEmpty()) {
-      conditionBean.setApplyTransformation(Boolean.parseBoolean(xstl));
+      conditionBean.setApplyTransformation(rutaId, Boolean.parseBoolean(xstl));
+      log.info("Transformación XSLT para la ruta " + rutaId + ": " + xstl);
     }
-
-    // Iniciar la ruta
-    startRoute(rutaId);
-  }
-
-  /**
-   * Método para detener una ruta
-   *
-   * @param rutaId El ID de la ruta
-   * @throws Exception Si ocurre un error al detener la ruta
-   */
-
-  private void stopRouteAction(String rutaId) throws Exception {
-    producerTemplate.sendBody("controlbus:route?routeId=" + rutaId + "&action=stop", null);
   }
 
 // Otros métodos auxiliares, como startRoute, pueden ir aquí si es necesario
@@ -250,65 +573,216 @@ public class DynamicRoutesManager {
 
   public void deleteRoute(DeleteRouteDTO deleteRouteDTO) throws Exception {
     String rutaId = deleteRouteDTO.getNameService();
-    Document query = new Document("nameService", deleteRouteDTO.getNameService());
-    log.info("Query: " + query);
-    Document result = (Document) getCollection().find(query).first();
+    Document result = serviceRepository.findByName(deleteRouteDTO.getNameService()).orElse(null);
     listRoutes();
     if (result != null) {
-      String portLocalEndPoint = result.getString("portLocalEndPoint");
       String portHostService = result.getString("portService");
-      logger.info(("PortLocalEndPoint: " + portLocalEndPoint));
-      // Borra el documento
-      // Detener y eliminar la ruta principal
-      if (camelContext.getRoute(rutaId) != null) {
-        try {
-          // Detener la ruta
-          stopRouteAction(rutaId);
+      removeServiceRoutes(deleteRouteDTO);
+      consulRegistration.deregisterService(deleteRouteDTO.getNameService()+"-"+portHostService)
+          .await().atMost(CONSUL_TIMEOUT);
+      serviceRepository.delete(rutaId);
+      releaseServiceState(rutaId);
+      log.info("Document with nameService " + rutaId + " deleted.");
+    } else {
+      log.info("No document found with nameService " + rutaId);
+    }
+  }
 
-          // Esperar un momento para asegurarse de que la ruta esté detenida
-          Thread.sleep(1000);
+  /**
+   * Método para eliminar un servicio sin bloquear el hilo que llama
+   * Solo la detención de las rutas en Camel se ejecuta en el pool de workers.
+   *
+   * @param deleteRouteDTO El servicio a eliminar
+   * @return Un Uni que termina cuando el servicio está eliminado
+   */
+  public Uni<Void> deleteRouteReactive(DeleteRouteDTO deleteRouteDTO) {
+    String rutaId = deleteRouteDTO.getNameService();
+    return serviceRepository.findByNameReactive(rutaId)
+        .chain(result -> {
+          if (result.isEmpty()) {
+            log.info("No document found with nameService " + rutaId);
+            return Uni.createFrom().voidItem();
+          }
+          String portHostService = result.get().getString("portService");
+          return blocking(() -> {
+                removeServiceRoutes(deleteRouteDTO);
+                return null;
+              })
+              .chain(() -> consulRegistration.deregisterService(rutaId + "-" + portHostService))
+              .chain(() -> serviceRepository.deleteReactive(rutaId))
+              .invoke(() -> {
+                releaseServiceState(rutaId);
+                log.info("Document with nameService " + rutaId + " deleted.");
+              });
+        });
+  }
+
+  /**
+   * Método para detener y eliminar las rutas de un servicio y avisar al servicio externo
+   *
+   * @param deleteRouteDTO El servicio a eliminar
+   * @throws RouteStopException Si ocurre un error al detener las rutas
+   */
+  private void removeServiceRoutes(DeleteRouteDTO deleteRouteDTO) throws RouteStopException {
+    ReentrantLock lock = lockService(deleteRouteDTO.getNameService());
+    // Detener y eliminar la ruta principal y la ruta applyXslt
+    try {
+      if (routeLifecycle.removeRouteGroup(deleteRouteDTO.getNameService())) {
+        logger.info("send deleteExternalService");
+        deleteRoutesResource.deleteExternalService(deleteRouteDTO);
+      }
+      forgetServiceLock(deleteRouteDTO.getNameService(), lock);
+    } catch (RouteStopException e) {
+      logger.error("Error al detener y eliminar la ruta: " + e.getMessage(), e);
+      throw new RouteStopException("Error al detener la ruta: " + e.getMessage());
+    } finally {
+      lock.unlock();
+    }
+  }
 
-          // Eliminar la ruta
-          camelContext.removeRoute(rutaId);
-          log.info("Route with id " + rutaId + " removed.");
-          logger.info("send deleteExternalService");
-          deleteRoutesResource.deleteExternalService(deleteRouteDTO);
+  /**
+   * Método para liberar todo lo que el proxy guarda en memoria para un servicio eliminado: la condición XSLT,
+   * el pool de conexiones, el circuit breaker, la compresión, las métricas, la caché de respuestas, el single-flight
+   * y la activación diferida
+   *
+   * @param nameService El nombre del servicio
+   */
+  private void releaseServiceState(String nameService) {
+    conditionBean.removeApplyTransformation(nameService);
+    backendConnectionPools.release(nameService);
+    backendCircuitBreakers.release(nameService);
+    messageCompression.release(nameService);
+    routeMetrics.remove(nameService);
+    responseCache.purge(nameService);
+    requestCoalescer.remove(nameService);
+    lazyRouteActivation.forget(nameService);
+  }
 
-        } catch (Exception e) {
-          logger.error("Error al detener y eliminar la ruta: " + e.getMessage(), e);
-          throw new RouteStopException("Error al detener la ruta: " + e.getMessage());
-        }
-      } else {
-        log.info("No route found with id " + rutaId);
+  /**
+   * Método para tomar el lock de un servicio
+   * Si el lock se retiró mientras se esperaba, porque el servicio se eliminó, se toma el lock nuevo.
+   *
+   * @param nameService El nombre del servicio
+   * @return El lock del servicio, ya tomado; se libera con unlock
+   */
+  ReentrantLock lockService(String nameService) {
+    while (true) {
+      ReentrantLock lock = serviceLocks.computeIfAbsent(nameService, key -> new ReentrantLock());
+      lock.lock();
+      if (serviceLocks.get(nameService) == lock) {
+        return lock;
       }
+      lock.unlock();
+    }
+  }
 
-      // Detener y eliminar la ruta applyXslt
-      String applyXsltRouteId = rutaId + "-applyXslt";
-      if (camelContext.getRoute(applyXsltRouteId) != null) {
-        try {
-          // Detener la ruta
-          stopRouteAction(applyXsltRouteId);
-
-          // Esperar un momento para asegurarse de que la ruta esté detenida
-          Thread.sleep(1000);
-
-          // Eliminar la ruta
-          camelContext.removeRoute(applyXsltRouteId);
-          log.info("Route with id " + applyXsltRouteId + " removed.");
-        } catch (Exception e) {
-          logger.error("Error al detener y eliminar la ruta: " + e.getMessage(), e);
-          throw new RouteStopException("Error al detener la ruta: " + e.getMessage());
-        }
-      } else {
-        log.info("No route found with id " + applyXsltRouteId);
+  /**
+   * Método para tomar los locks de varios servicios
+   * Se toman en orden alfabético, para que dos operaciones en bloque no se esperen una a la otra.
+   *
+   * @param nameServices Los nombres de los servicios
+   * @return Los locks tomados, por servicio
+   */
+  private Map<String, ReentrantLock> lockServices(Collection<String> nameServices) {
+    Map<String, ReentrantLock> locks = new LinkedHashMap<>();
+    for (String nameService : new TreeSet<>(nameServices)) {
+      locks.put(nameService, lockService(nameService));
+    }
+    return locks;
+  }
+
+  /**
+   * Método para liberar los locks de varios servicios, en el orden inverso al que se tomaron
+   *
+   * @param locks Los locks tomados con lockServices
+   */
+  private static void unlockServices(Map<String, ReentrantLock> locks) {
+    List<ReentrantLock> taken = new ArrayList<>(locks.values());
+    for (int i = taken.size() - 1; i >= 0; i--) {
+      taken.get(i).unlock();
+    }
+  }
+
+  /**
+   * Método para retirar el lock de un servicio eliminado, para que el mapa de locks no crezca sin límite
+   * Se llama con el lock tomado; quien lo estaba esperando toma un lock nuevo al despertar.
+   *
+   * @param nameService El nombre del servicio
+   * @param lock        El lock del servicio
+   */
+  private void forgetServiceLock(String nameService, ReentrantLock lock) {
+    serviceLocks.remove(nameService, lock);
+  }
+
+  /**
+   * Método para ejecutar una operación bloqueante en el pool de administración
+   *
+   * @param action La operación
+   * @return Un Uni con el resultado de la operación
+   */
+  private <T> Uni<T> blocking(Callable<T> action) {
+    return adminExecutor.submit(action);
+  }
+
+  /**
+   * Método para eliminar varios servicios en una sola operación
+   * Las rutas de todos los servicios se detienen y eliminan en paralelo, y el registro en Consul se borra en paralelo.
+   *
+   * @param deleteRouteDTOs Los servicios a eliminar
+   * @return El resultado de cada servicio, en el mismo orden de la petición
+   */
+  public List<RouteProvisionResult> deleteRoutes(List<DeleteRouteDTO> deleteRouteDTOs) {
+    Map<String, RouteProvisionResult> results = new LinkedHashMap<>();
+    deleteRouteDTOs.forEach(deleteRouteDTO -> results.put(deleteRouteDTO.getNameService(),
+        new RouteProvisionResult(deleteRouteDTO.getNameService(), false, "No document found")));
+
+    // Buscar todos los servicios en una sola consulta
+    Map<String, String> portByService = new LinkedHashMap<>();
+    serviceRepository.findByNames(results.keySet())
+        .forEach((nameService, service) -> portByService.put(nameService, service.getString("portService")));
+
+    // Los mismos locks que la eliminación de un solo servicio; los de los servicios eliminados se retiran
+    Map<String, ReentrantLock> locks = lockServices(portByService.keySet());
+    Map<String, Exception> errors;
+    List<String> removed;
+    // Solo se avisa al servicio externo de los servicios cuya ruta principal existía, como en deleteRoute
+    Set<String> mainRoutesRemoved = ConcurrentHashMap.newKeySet();
+    try {
+      errors = routeLifecycle.removeRouteGroups(portByService.keySet(), mainRoutesRemoved);
+      removed = portByService.keySet().stream().filter(nameService -> !errors.containsKey(nameService)).toList();
+      removed.forEach(nameService -> forgetServiceLock(nameService, locks.get(nameService)));
+    } finally {
+      unlockServices(locks);
+    }
+    errors.forEach((nameService, e) -> results.get(nameService).setMessage("Error al detener la ruta: " + e.getMessage()));
+
+    Set<String> deregistered = ConcurrentHashMap.newKeySet();
+    List<Uni<Void>> deregistrations = removed.stream()
+        .map(nameService -> consulRegistration.deregisterService(nameService + "-" + portByService.get(nameService))
+            .invoke(() -> deregistered.add(nameService))
+            .onFailure().invoke(e -> results.get(nameService)
+                .setMessage("Error al eliminar el registro en Consul: " + e.getMessage()))
+            .onFailure().recoverWithNull())
+        .toList();
+    if (!deregistrations.isEmpty()) {
+      Uni.join().all(deregistrations).andFailFast().await().atMost(CONSUL_TIMEOUT);
+    }
+
+    // Las operaciones bloqueantes se hacen fuera del event loop de Consul
+    for (String nameService : deregistered) {
+      if (mainRoutesRemoved.contains(nameService)) {
+        deleteRoutesResource.deleteExternalService(new DeleteRouteDTO(nameService));
       }
-      Vertx vertx = Vertx.vertx();
-      consulRegistration.deregisterService(vertx, deleteRouteDTO.getNameService()+"-"+portHostService);;
-      getCollection().deleteOne(query);
-      log.info("Document with nameService " + rutaId + " deleted.");
-    } else {
-      log.info("No document found with nameService " + rutaId);
+      releaseServiceState(nameService);
+      RouteProvisionResult result = results.get(nameService);
+      result.setSuccess(true);
+      result.setMessage("Ruta eliminada correctamente");
+    }
+    if (!deregistered.isEmpty()) {
+      serviceRepository.deleteAll(deregistered);
     }
+
+    return new ArrayList<>(results.values());
   }
 
 
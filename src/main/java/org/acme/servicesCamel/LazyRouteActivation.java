@@ -0,0 +1,278 @@
+package org.acme.servicesCamel;
+
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.java.Log;
+import org.acme.DTOs.ModifyDataHots;
+import org.acme.DTOs.RouteProvisionResult;
+import org.acme.configurations.AdminExecutor;
+import org.acme.routes.RouteVersions;
+import org.acme.service.ServiceRepository;
+import org.apache.camel.CamelContext;
+
+/**
+ * Esta clase es responsable del modo de activación diferida de las rutas.
+ * Con ROUTE_LAZY_ACTIVATION el catálogo solo registra un marcador por servicio, sin endpoint CXF ni WSDL cargado,
+ * y la ruta completa se crea con la primera petición que llega a /soap/{nameService}; la petición espera a que la
+ * ruta esté lista y luego sigue hacia CXF.
+ * Las rutas que no reciben peticiones durante ROUTE_IDLE_TIMEOUT segundos se eliminan y vuelven a ser un marcador.
+ * Está anotado con @ApplicationScoped, lo que significa que se creará una sola instancia para toda la aplicación.
+ */
+@ApplicationScoped
+@Log
+public class LazyRouteActivation {
+
+  private static final String SOAP_PATH = "/soap/";
+
+  boolean enabled = Boolean.parseBoolean(System.getenv().getOrDefault("ROUTE_LAZY_ACTIVATION", "false"));
+  long idleTimeout = Long.parseLong(System.getenv().getOrDefault("ROUTE_IDLE_TIMEOUT", "1800")) * 1000;
+  long checkInterval = Long.parseLong(System.getenv().getOrDefault("ROUTE_IDLE_CHECK_INTERVAL", "60"));
+
+  @Inject
+  CamelContext camelContext;
+
+  @Inject
+  DynamicRoutesManager dynamicRoutesManager;
+
+  @Inject
+  ServiceRepository serviceRepository;
+
+  @Inject
+  RouteVersions routeVersions;
+
+  @Inject
+  AdminExecutor adminExecutor;
+
+  // Servicios registrados cuya ruta no está creada
+  private final Map<String, ModifyDataHots> placeholders = new ConcurrentHashMap<>();
+  // Activaciones en curso, compartidas por las peticiones que llegan mientras se crea la ruta
+  private final Map<String, Uni<Void>> activations = new ConcurrentHashMap<>();
+  // Última petición de cada servicio con ruta creada
+  private final Map<String, Long> lastUsed = new ConcurrentHashMap<>();
+  private ScheduledExecutorService sweeper;
+
+  /**
+   * Método que se ejecuta al iniciar la aplicación
+   * Inicia la revisión periódica de las rutas inactivas.
+   *
+   * @param ev El evento de inicio, proporcionado por Quarkus
+   */
+  void onStart(@Observes StartupEvent ev) {
+    if (!enabled) {
+      return;
+    }
+    sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "route-idle-sweeper");
+      thread.setDaemon(true);
+      return thread;
+    });
+    sweeper.scheduleWithFixedDelay(this::unloadIdleRoutes, checkInterval, checkInterval, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Método que se ejecuta al detener la aplicación
+   */
+  @PreDestroy
+  void close() {
+    if (sweeper != null) {
+      sweeper.shutdownNow();
+    }
+  }
+
+  /**
+   * Método para interceptar las peticiones SOAP antes de que lleguen a CXF
+   * Se registra antes que los demás manejadores de /soap/*.
+   *
+   * @param router El router HTTP de Quarkus
+   */
+  void registerRoutes(@Observes Router router) {
+    if (enabled) {
+      router.route(SOAP_PATH + "*").order(Integer.MIN_VALUE).handler(this::onRequest);
+    }
+  }
+
+  /**
+   * Método para saber si el modo de activación diferida está habilitado
+   *
+   * @return true si el catálogo registra marcadores en lugar de rutas
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Método para registrar servicios sin crear sus rutas
+   * Los servicios se registran en Consul en paralelo, igual que las rutas creadas.
+   *
+   * @param routeDtos Los datos de las rutas
+   * @return El resultado de cada servicio, en el mismo orden de la petición
+   */
+  public List<RouteProvisionResult> registerPlaceholders(List<ModifyDataHots> routeDtos) {
+    Map<String, RouteProvisionResult> results = new LinkedHashMap<>();
+    List<Uni<Void>> registrations = new ArrayList<>();
+    for (ModifyDataHots routeDto : routeDtos) {
+      String nameService = routeDto.getNameService();
+      RouteProvisionResult result = new RouteProvisionResult(nameService, false, null);
+      results.put(nameService, result);
+      if (camelContext.getRoute(nameService) == null) {
+        placeholders.put(nameService, routeDto);
+      }
+      registrations.add(dynamicRoutesManager.registerPlaceholder(routeDto)
+          .invoke(() -> {
+            result.setSuccess(true);
+            result.setMessage("ruta registrada para activación diferida");
+          })
+          .onFailure().invoke(e -> result.setMessage(e.getMessage()))
+          .onFailure().recoverWithNull());
+    }
+    if (!registrations.isEmpty()) {
+      Uni.join().all(registrations).andFailFast().await().atMost(DynamicRoutesManager.CONSUL_TIMEOUT);
+    }
+    return new ArrayList<>(results.values());
+  }
+
+  /**
+   * Método para olvidar un servicio, por ejemplo cuando se elimina
+   *
+   * @param nameService El nombre del servicio
+   */
+  public void forget(String nameService) {
+    placeholders.remove(nameService);
+    lastUsed.remove(nameService);
+  }
+
+  /**
+   * Método para atender una petición a /soap/{nameService}
+   * Si el servicio solo tiene un marcador, la petición se pausa hasta que su ruta está creada.
+   *
+   * @param routingContext El contexto de la petición
+   */
+  private void onRequest(RoutingContext routingContext) {
+    String nameService = serviceName(routingContext.normalizedPath());
+    if (nameService == null) {
+      routingContext.next();
+      return;
+    }
+    lastUsed.computeIfPresent(nameService, (name, last) -> System.currentTimeMillis());
+    if (!placeholders.containsKey(nameService)) {
+      routingContext.next();
+      return;
+    }
+
+    Context context = Vertx.currentContext();
+    routingContext.request().pause();
+    activate(nameService).subscribe().with(
+        ignored -> context.runOnContext(v -> {
+          routingContext.request().resume();
+          routingContext.next();
+        }),
+        failure -> context.runOnContext(v -> {
+          log.warning("No se pudo activar la ruta " + nameService + ": " + failure.getMessage());
+          routingContext.request().resume();
+          routingContext.response().setStatusCode(503).end("Servicio no disponible: " + nameService);
+        }));
+  }
+
+  /**
+   * Método para crear la ruta de un servicio registrado con un marcador
+   * Las peticiones que llegan mientras se crea comparten la misma activación.
+   *
+   * @param nameService El nombre del servicio
+   * @return Un Uni que termina cuando la ruta está creada
+   */
+  private Uni<Void> activate(String nameService) {
+    return activations.computeIfAbsent(nameService, name -> adminExecutor.submit(() -> {
+          // El mismo lock del servicio que usa la descarga, para no crear una ruta que se está eliminando
+          ReentrantLock lock = dynamicRoutesManager.lockService(name);
+          try {
+            ModifyDataHots routeDto = placeholders.remove(name);
+            if (routeDto != null) {
+              long start = System.currentTimeMillis();
+              try {
+                dynamicRoutesManager.loadRoute(routeDto);
+              } catch (Exception e) {
+                placeholders.put(name, routeDto);
+                throw e;
+              }
+              lastUsed.put(name, System.currentTimeMillis());
+              log.info("Ruta " + name + " activada en " + (System.currentTimeMillis() - start) + " ms");
+            }
+          } finally {
+            lock.unlock();
+          }
+          return (Void) null;
+        })
+        .onTermination().invoke(() -> activations.remove(name))
+        .memoize().indefinitely());
+  }
+
+  /**
+   * Método para eliminar las rutas sin peticiones durante ROUTE_IDLE_TIMEOUT y dejar un marcador en su lugar
+   * Las rutas con intercambios en curso no se eliminan.
+   */
+  private void unloadIdleRoutes() {
+    long now = System.currentTimeMillis();
+    // Las rutas creadas fuera del modo diferido empiezan a contar desde la primera revisión
+    camelContext.getRoutes().forEach(route -> {
+      String routeId = route.getRouteId();
+      if (routeVersions.activeRouteId(routeId) != null) {
+        lastUsed.putIfAbsent(routeId, now);
+      }
+    });
+
+    lastUsed.forEach((nameService, last) -> {
+      if (now - last < idleTimeout || camelContext.getInflightRepository().size(nameService) > 0) {
+        return;
+      }
+      ReentrantLock lock = dynamicRoutesManager.lockService(nameService);
+      try {
+        ModifyDataHots routeDto = serviceRepository.findByName(nameService)
+            .map(RouteRestoration::toRouteDto)
+            .orElse(null);
+        if (routeDto == null) {
+          lastUsed.remove(nameService);
+          return;
+        }
+        // El marcador se deja antes de eliminar la ruta: una petición que llega ahora espera el lock y la vuelve a crear
+        placeholders.put(nameService, routeDto);
+        if (lastUsed.remove(nameService, last)) {
+          dynamicRoutesManager.unloadRoute(nameService);
+          log.info("Ruta " + nameService + " descargada por inactividad");
+        } else {
+          placeholders.remove(nameService, routeDto);
+        }
+      } catch (Exception e) {
+        log.warning("No se pudo descargar la ruta " + nameService + ": " + e.getMessage());
+      } finally {
+        lock.unlock();
+      }
+    });
+  }
+
+  private static String serviceName(String path) {
+    if (path == null || !path.startsWith(SOAP_PATH)) {
+      return null;
+    }
+    String rest = path.substring(SOAP_PATH.length());
+    int end = rest.indexOf('/');
+    String nameService = end >= 0 ? rest.substring(0, end) : rest;
+    return nameService.isEmpty() ? null : nameService;
+  }
+}
@@ -0,0 +1,232 @@
+package org.acme.servicesCamel;
+
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.java.Log;
+import org.acme.configurations.RouteStopException;
+import org.acme.routes.RouteVersions;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Route;
+import org.apache.camel.ServiceStatus;
+
+/**
+ * Esta clase es responsable de detener y eliminar las rutas de los servicios.
+ * Las rutas se detienen con el RouteController usando un apagado ordenado con tiempo límite,
+ * y se eliminan en cuanto su estado es Stopped, sin esperas fijas.
+ * Está anotado con @ApplicationScoped, lo que significa que se creará una sola instancia para toda la aplicación.
+ */
+@ApplicationScoped
+@Log
+public class RouteLifecycle {
+
+  private final long shutdownTimeout =
+      Long.parseLong(System.getenv().getOrDefault("ROUTE_SHUTDOWN_TIMEOUT", "10"));
+  private final int parallelism =
+      Integer.parseInt(System.getenv().getOrDefault("ROUTE_SHUTDOWN_PARALLELISM", "8"));
+
+  // Espera entre consultas de los intercambios en curso mientras se drena una versión: empieza corta y se duplica
+  private static final long DRAIN_MIN_WAIT_MILLIS = 5;
+  private static final long DRAIN_MAX_WAIT_MILLIS = 500;
+
+  @Inject
+  CamelContext camelContext;
+
+  @Inject
+  RouteVersions routeVersions;
+
+  // Pool para eliminar en paralelo las rutas de varios servicios; sus hilos terminan cuando no hay trabajo
+  private ThreadPoolExecutor executor;
+
+  /**
+   * Método que crea el pool una vez construido el bean
+   */
+  @PostConstruct
+  void init() {
+    AtomicInteger counter = new AtomicInteger();
+    executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        runnable -> {
+          Thread thread = new Thread(runnable, "route-lifecycle-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Método que detiene el pool cuando la aplicación se detiene
+   */
+  @PreDestroy
+  void close() {
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Método que se ejecuta al iniciar la aplicación
+   * Habilita la consulta de los intercambios en curso, que se usa para drenar las versiones anteriores de las rutas.
+   *
+   * @param ev El evento de inicio, proporcionado por Quarkus
+   */
+  void onStart(@Observes StartupEvent ev) {
+    camelContext.getInflightRepository().setInflightBrowseEnabled(true);
+  }
+
+  /**
+   * Método para obtener los IDs de las rutas de un servicio, empezando por la ruta principal
+   *
+   * @param nameService El nombre del servicio
+   * @return Los IDs de la ruta principal, de las versiones de la ruta del backend y de la ruta applyXslt
+   */
+  public List<String> routeGroup(String nameService) {
+    List<String> group = new ArrayList<>();
+    group.add(nameService);
+    camelContext.getRoutes().stream()
+        .map(Route::getRouteId)
+        .filter(routeId -> RouteVersions.isVersionOf(routeId, nameService))
+        .sorted()
+        .forEach(group::add);
+    group.add(nameService + "-applyXslt");
+    return group;
+  }
+
+  /**
+   * Método para retirar una versión anterior de la ruta del backend después de cambiar el tráfico a la nueva
+   * Primero se espera a que terminen los intercambios que entraron por la ruta principal antes del cambio,
+   * que son los únicos que pueden seguir usando la versión anterior; después se detiene y elimina esa versión.
+   * Los intercambios en curso se consultan con una espera que se duplica en cada vuelta, así que un drenaje corto
+   * termina enseguida y uno largo no consulta el repositorio de intercambios en curso a cada momento.
+   *
+   * @param frontRouteId El ID de la ruta principal del servicio
+   * @param routeId      El ID de la versión anterior
+   * @param switchedAt   El instante del cambio, en milisegundos
+   * @throws RouteStopException Si la versión anterior no se puede detener o eliminar
+   */
+  public void drainAndRemove(String frontRouteId, String routeId, long switchedAt) throws RouteStopException {
+    long deadline = switchedAt + TimeUnit.SECONDS.toMillis(shutdownTimeout);
+    long wait = DRAIN_MIN_WAIT_MILLIS;
+    try {
+      while (startedBefore(frontRouteId, switchedAt)) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          break;
+        }
+        Thread.sleep(Math.min(wait, remaining));
+        wait = Math.min(wait * 2, DRAIN_MAX_WAIT_MILLIS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RouteStopException("Interrumpido mientras se drenaba la ruta " + routeId);
+    }
+
+    removeRoute(routeId);
+  }
+
+  private boolean startedBefore(String frontRouteId, long switchedAt) {
+    long now = System.currentTimeMillis();
+    return camelContext.getInflightRepository().browse(frontRouteId).stream()
+        .anyMatch(inflight -> now - inflight.getDuration() < switchedAt);
+  }
+
+  /**
+   * Método para detener una ruta y esperar a que quede detenida
+   * Los intercambios en curso tienen hasta ROUTE_SHUTDOWN_TIMEOUT segundos para terminar.
+   *
+   * @param routeId El ID de la ruta
+   * @throws RouteStopException Si la ruta no queda detenida
+   */
+  public void stopRoute(String routeId) throws RouteStopException {
+    try {
+      camelContext.getRouteController().stopRoute(routeId, shutdownTimeout, TimeUnit.SECONDS);
+    } catch (Exception e) {
+      throw new RouteStopException("Error al detener la ruta " + routeId + ": " + e.getMessage());
+    }
+
+    ServiceStatus status = camelContext.getRouteController().getRouteStatus(routeId);
+    if (status != null && !status.isStopped()) {
+      throw new RouteStopException("La ruta " + routeId + " no se detuvo, estado: " + status);
+    }
+  }
+
+  /**
+   * Método para detener y eliminar todas las rutas de un servicio
+   * La ruta principal se detiene primero para que sus intercambios en curso puedan usar todavía la ruta applyXslt.
+   *
+   * @param nameService El nombre del servicio
+   * @return true si se eliminó la ruta principal
+   * @throws RouteStopException Si alguna ruta no se puede detener o eliminar
+   */
+  public boolean removeRouteGroup(String nameService) throws RouteStopException {
+    boolean mainRouteRemoved = false;
+    for (String routeId : routeGroup(nameService)) {
+      boolean removed = removeRoute(routeId);
+      mainRouteRemoved |= removed && routeId.equals(nameService);
+    }
+    routeVersions.remove(nameService);
+    return mainRouteRemoved;
+  }
+
+  /**
+   * Método para detener y eliminar una ruta
+   *
+   * @param routeId El ID de la ruta
+   * @return true si la ruta existía y se eliminó
+   * @throws RouteStopException Si la ruta no se puede detener o eliminar
+   */
+  public boolean removeRoute(String routeId) throws RouteStopException {
+    if (camelContext.getRoute(routeId) == null) {
+      log.info("No route found with id " + routeId);
+      return false;
+    }
+    stopRoute(routeId);
+    try {
+      if (!camelContext.removeRoute(routeId)) {
+        throw new RouteStopException("La ruta " + routeId + " no se pudo eliminar");
+      }
+    } catch (RouteStopException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RouteStopException("Error al eliminar la ruta " + routeId + ": " + e.getMessage());
+    }
+    log.info("Route with id " + routeId + " removed.");
+    return true;
+  }
+
+  /**
+   * Método para detener y eliminar las rutas de varios servicios en paralelo
+   *
+   * @param nameServices      Los nombres de los servicios
+   * @param mainRoutesRemoved Donde se agregan los servicios cuya ruta principal existía y se eliminó
+   * @return Los errores por servicio; los servicios que no aparecen se eliminaron correctamente
+   */
+  public Map<String, Exception> removeRouteGroups(Collection<String> nameServices, Set<String> mainRoutesRemoved) {
+    Map<String, Exception> errors = new ConcurrentHashMap<>();
+    CompletableFuture.allOf(nameServices.stream()
+        .map(nameService -> CompletableFuture.runAsync(() -> {
+          try {
+            if (removeRouteGroup(nameService)) {
+              mainRoutesRemoved.add(nameService);
+            }
+          } catch (Exception e) {
+            errors.put(nameService, e);
+          }
+        }, executor))
+        .toArray(CompletableFuture[]::new)).join();
+    return errors;
+  }
+}
@@ -0,0 +1,174 @@
+package org.acme.servicesCamel;
+
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.interceptor.Interceptor;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.java.Log;
+import org.acme.DTOs.ModifyDataHots;
+import org.acme.DTOs.RouteProvisionResult;
+import org.acme.configurations.AdminExecutor;
+import org.acme.service.ServiceRepository;
+import org.bson.Document;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
+import org.eclipse.microprofile.health.Readiness;
+
+/**
+ * Esta clase es responsable de volver a crear las rutas de todos los servicios guardados en Service.service
+ * al iniciar la aplicación.
+ * El catálogo se lee de Mongo como un flujo, en lotes que se crean en paralelo en el pool de administración
+ * con DynamicRoutesManager.addSoapRoutes, que aísla los errores de cada servicio y registra en Consul en paralelo.
+ * Con la activación diferida de LazyRouteActivation solo se registran los marcadores de los servicios.
+ * La aplicación se informa lista solo cuando todos los servicios del catálogo se han procesado;
+ * los servicios que fallan se informan en la verificación de disponibilidad sin detener a los demás.
+ * Si el catálogo no se puede leer, la restauración completa se vuelve a intentar hasta que termina.
+ * Está anotado con @ApplicationScoped, lo que significa que se creará una sola instancia para toda la aplicación.
+ */
+@ApplicationScoped
+@Readiness
+@Log
+public class RouteRestoration implements HealthCheck {
+
+  boolean enabled = Boolean.parseBoolean(System.getenv().getOrDefault("ROUTE_RESTORE_ENABLED", "true"));
+  int parallelism = Integer.parseInt(System.getenv().getOrDefault("ROUTE_RESTORE_PARALLELISM", "4"));
+  int batchSize = Integer.parseInt(System.getenv().getOrDefault("ROUTE_RESTORE_BATCH_SIZE", "50"));
+  int retries = Integer.parseInt(System.getenv().getOrDefault("ROUTE_RESTORE_RETRIES", "5"));
+
+  static final Duration RESTORE_RETRY_DELAY = Duration.ofSeconds(60);
+
+  @Inject
+  ServiceRepository serviceRepository;
+
+  @Inject
+  DynamicRoutesManager dynamicRoutesManager;
+
+  @Inject
+  LazyRouteActivation lazyRouteActivation;
+
+  @Inject
+  AdminExecutor adminExecutor;
+
+  // Un servicio se cuenta una sola vez aunque la lectura del catálogo se reintente
+  private final Set<String> restored = ConcurrentHashMap.newKeySet();
+  private final Map<String, String> failures = new ConcurrentHashMap<>();
+  private volatile boolean finished;
+  private volatile String error;
+  private volatile long startedAt;
+
+  /**
+   * Método que se ejecuta al iniciar la aplicación, después de los demás observadores del evento de inicio
+   * La restauración se ejecuta en segundo plano, así que el inicio de la aplicación no espera por ella.
+   *
+   * @param ev El evento de inicio, proporcionado por Quarkus
+   */
+  void onStart(@Observes @Priority(Interceptor.Priority.APPLICATION + 1000) StartupEvent ev) {
+    if (!enabled) {
+      finished = true;
+      return;
+    }
+    startedAt = System.currentTimeMillis();
+    restore();
+  }
+
+  /**
+   * Método para leer el catálogo y crear las rutas de sus servicios
+   * Si el catálogo no se puede leer después de ROUTE_RESTORE_RETRIES reintentos, se vuelve a intentar completo
+   * después de RESTORE_RETRY_DELAY; mientras tanto la aplicación sigue sin estar lista y el error se informa.
+   */
+  private void restore() {
+    log.info("Restaurando las rutas del catálogo de servicios");
+
+    serviceRepository.streamAll()
+        .onFailure().retry().withBackOff(Duration.ofSeconds(1), Duration.ofSeconds(30)).atMost(retries)
+        .map(RouteRestoration::toRouteDto)
+        .group().intoLists().of(batchSize)
+        .onItem().transformToUni(batch -> adminExecutor.submit(() -> lazyRouteActivation.isEnabled()
+                ? lazyRouteActivation.registerPlaceholders(batch)
+                : dynamicRoutesManager.addSoapRoutes(batch))
+            // Un lote que falla completo no detiene a los demás
+            .onFailure().recoverWithItem(e -> batch.stream()
+                .map(routeDto -> new RouteProvisionResult(routeDto.getNameService(), false, e.getMessage()))
+                .toList()))
+        .merge(parallelism)
+        .subscribe().with(
+            this::record,
+            failure -> {
+              error = failure.getMessage();
+              log.severe("Error al restaurar las rutas del catálogo, se reintenta en "
+                  + RESTORE_RETRY_DELAY.toSeconds() + " s: " + failure);
+              Uni.createFrom().voidItem()
+                  .onItem().delayIt().by(RESTORE_RETRY_DELAY)
+                  .subscribe().with(ignored -> restore());
+            },
+            () -> {
+              error = null;
+              finished = true;
+              log.info("Rutas restauradas: " + restored.size() + ", con error: " + failures.size()
+                  + ", en " + (System.currentTimeMillis() - startedAt) + " ms");
+            });
+  }
+
+  /**
+   * Método para informar si todas las rutas del catálogo ya se procesaron
+   *
+   * @return UP cuando la restauración terminó, con los servicios restaurados y los que fallaron
+   */
+  @Override
+  public HealthCheckResponse call() {
+    HealthCheckResponseBuilder response = HealthCheckResponse.named("route-restoration")
+        .status(finished)
+        .withData("restored", restored.size())
+        .withData("failed", failures.size());
+    if (error != null) {
+      response.withData("error", error);
+    }
+    new TreeMap<>(failures).forEach(response::withData);
+    return response.build();
+  }
+
+  /**
+   * Método para contar el resultado de cada servicio de un lote
+   *
+   * @param results Los resultados del lote
+   */
+  private void record(List<RouteProvisionResult> results) {
+    for (RouteProvisionResult result : results) {
+      if (result.isSuccess()) {
+        restored.add(result.getNameService());
+        failures.remove(result.getNameService());
+      } else {
+        failures.put(result.getNameService(), String.valueOf(result.getMessage()));
+        log.warning("No se pudo restaurar la ruta " + result.getNameService() + ": " + result.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Método para convertir un servicio guardado en los datos de su ruta
+   * Las políticas del servicio no se copian: buildSoapRoute las lee del mismo documento.
+   *
+   * @param document El documento del servicio
+   * @return Los datos de la ruta
+   */
+  static ModifyDataHots toRouteDto(Document document) {
+    ModifyDataHots routeDto = new ModifyDataHots();
+    routeDto.setNameService(document.getString("nameService"));
+    routeDto.setProtocolService(Objects.toString(document.get("protocolService"), null));
+    routeDto.setHostService(Objects.toString(document.get("hostService"), null));
+    routeDto.setPortService(Objects.toString(document.get("portService"), null));
+    routeDto.setPathService(Objects.toString(document.get("pathService"), null));
+    return routeDto;
+  }
+}
@@ -0,0 +1,47 @@
+package org.acme.configurations;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CardXmlProcessTest {
+
+    private final CardXmlProcess cardXmlProcess = new CardXmlProcess("/xslt/recaudadora.xslt");
+
+    private String convert(String json) throws Exception {
+        StringWriter xml = new StringWriter();
+        try (JsonParser parser = new JsonFactory().createParser(json)) {
+            XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(xml);
+            cardXmlProcess.writeJsonAsXml(parser, writer);
+            writer.close();
+        }
+        return xml.toString();
+    }
+
+    @Test
+    void testObjectKeysBecomeElements() throws Exception {
+        assertEquals(
+            "<processCardXmlRequest><card><number>4111</number><holder>Ana</holder></card></processCardXmlRequest>",
+            convert("{\"card\":{\"number\":\"4111\",\"holder\":\"Ana\"}}"));
+    }
+
+    @Test
+    void testArrayItemsRepeatUnderParent() throws Exception {
+        assertEquals(
+            "<processCardXmlRequest><cards><number>1</number><number>2</number></cards></processCardXmlRequest>",
+            convert("{\"cards\":[{\"number\":1},{\"number\":2}]}"));
+    }
+
+    @Test
+    void testScalarArrayKeepsLastValue() throws Exception {
+        assertEquals(
+            "<processCardXmlRequest><codes>b</codes></processCardXmlRequest>",
+            convert("{\"codes\":[\"a\",\"b\"]}"));
+    }
+}
@@ -0,0 +1,32 @@
+package org.acme.configurations;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Alternative;
+import java.util.List;
+
+/**
+ * Stand-in for ConsulRegistration that accepts every registration, so tests run without Consul.
+ */
+@Alternative
+@ApplicationScoped
+public class NoopConsulRegistration extends ConsulRegistration {
+
+    @Override
+    void init() {
+    }
+
+    @Override
+    void close() {
+    }
+
+    @Override
+    public Uni<Void> registerService(String name, String id, List<String> tags) {
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> deregisterService(String id) {
+        return Uni.createFrom().voidItem();
+    }
+}
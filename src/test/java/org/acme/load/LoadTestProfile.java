@@ -0,0 +1,25 @@
+package org.acme.load;
+
+import io.quarkus.test.junit.QuarkusTestProfile;
+import java.util.Map;
+import java.util.Set;
+import org.acme.configurations.NoopConsulRegistration;
+import org.acme.service.InMemoryServiceRepository;
+
+/**
+ * Test profile of the load harness: Mongo and Consul are replaced by local stand-ins.
+ */
+public class LoadTestProfile implements QuarkusTestProfile {
+
+    @Override
+    public Set<Class<?>> getEnabledAlternatives() {
+        return Set.of(InMemoryServiceRepository.class, NoopConsulRegistration.class);
+    }
+
+    @Override
+    public Map<String, String> getConfigOverrides() {
+        return Map.of(
+            "quarkus.mongodb.devservices.enabled", "false",
+            "quarkus.consul-config.enabled", "false");
+    }
+}
@@ -0,0 +1,226 @@
+package org.acme.load;
+
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.java.Log;
+import org.acme.DTOs.CircuitBreakerPolicy;
+import org.acme.DTOs.ConditionBean;
+import org.acme.DTOs.ConnectionPolicy;
+import org.acme.DTOs.ModifyDataHots;
+import org.acme.servicesCamel.DynamicRoutesManager;
+import org.acme.servicesCamel.RouteLifecycle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * End-to-end load harness for the SOAP proxy.
+ * It starts the application with in-memory stand-ins for Mongo and Consul and a local stub backend built from
+ * recaudadora.wsdl. It provisions the route through DynamicRoutesManager.addSoapRoute and sends concurrent requests
+ * to the CXF consumer endpoint, first without and then with the XSLT transformation.
+ * A second run compares the synchronous proxy mode with the asynchronous one against a slow backend.
+ * Throughput, latency percentiles and errors are logged at INFO for each run.
+ * It only runs when asked for, for example:
+ * ./mvnw test -Dtest=ProxyLoadHarnessTest -Dload.test=true -Dload.concurrency=32 -Dload.requests=20000
+ * ./mvnw test -Dtest=ProxyLoadHarnessTest#testSyncVersusAsyncProxy -Dload.test=true -Dload.concurrency=1000
+ *     -Dload.requests=20000 -Dload.backendDelay=2000
+ */
+@QuarkusTest
+@TestProfile(LoadTestProfile.class)
+@EnabledIfSystemProperty(named = "load.test", matches = "true")
+@Log
+class ProxyLoadHarnessTest {
+
+    private static final String SERVICE = "recaudadora";
+    private static final String BACKEND_PATH = "/stub/recaudadora";
+    private static final String REQUEST =
+        "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\" "
+            + "xmlns:rec=\"http://www.example.org/bbvaMaquinaRecaudadora\">"
+            + "<soapenv:Header/><soapenv:Body><rec:CierreDeCaja>"
+            + "<Fecha>2024-05-14</Fecha><valorTotal>1850000.00</valorTotal>"
+            + "</rec:CierreDeCaja></soapenv:Body></soapenv:Envelope>";
+
+    private final int concurrency = Integer.getInteger("load.concurrency", 16);
+    private final int requests = Integer.getInteger("load.requests", 2000);
+    private final int warmupRequests = Integer.getInteger("load.warmup", 200);
+    private final long backendDelay = Long.getLong("load.backendDelay", 0);
+
+    @Inject
+    DynamicRoutesManager dynamicRoutesManager;
+
+    @Inject
+    RouteLifecycle routeLifecycle;
+
+    @Inject
+    ConditionBean conditionBean;
+
+    @TestHTTPResource("/soap/" + SERVICE)
+    URL proxyUrl;
+
+    private StubSoapBackend backend;
+    private int backendPort;
+    private HttpClient httpClient;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        backend = new StubSoapBackend(Path.of("src/main/resources/wsdl/recaudadora.wsdl"), backendDelay);
+        backendPort = backend.start(BACKEND_PATH, concurrency);
+        provision(null);
+
+        httpClient = HttpClient.newBuilder()
+            .executor(Executors.newFixedThreadPool(concurrency))
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        routeLifecycle.removeRouteGroup(SERVICE);
+        conditionBean.removeApplyTransformation(SERVICE);
+        backend.close();
+    }
+
+    @Test
+    void testProxyThroughput() throws Exception {
+        conditionBean.setApplyTransformation(SERVICE, false);
+        run(warmupRequests);
+        LoadResult withoutXslt = run(requests);
+        withoutXslt.report("XSLT off");
+
+        conditionBean.setApplyTransformation(SERVICE, true);
+        run(warmupRequests);
+        LoadResult withXslt = run(requests);
+        withXslt.report("XSLT on");
+
+        assertEquals(0, withoutXslt.errors);
+        assertEquals(0, withXslt.errors);
+    }
+
+    @Test
+    void testSyncVersusAsyncProxy() throws Exception {
+        conditionBean.setApplyTransformation(SERVICE, false);
+
+        provision(false);
+        run(warmupRequests);
+        LoadResult sync = run(requests);
+        sync.report("sync proxy");
+
+        provision(true);
+        run(warmupRequests);
+        LoadResult async = run(requests);
+        async.report("async proxy");
+
+        assertEquals(0, sync.errors);
+        assertEquals(0, async.errors);
+    }
+
+    private void provision(Boolean asyncProxy) throws Exception {
+        ModifyDataHots route = new ModifyDataHots();
+        route.setNameService(SERVICE);
+        route.setProtocolService("http");
+        route.setHostService("localhost");
+        route.setPortService(String.valueOf(backendPort));
+        route.setPathService(BACKEND_PATH);
+        if (asyncProxy != null) {
+            ConnectionPolicy connectionPolicy = new ConnectionPolicy();
+            connectionPolicy.setAsyncProxy(asyncProxy);
+            // The bulkhead must not be the limit being measured
+            CircuitBreakerPolicy circuitBreaker = new CircuitBreakerPolicy();
+            circuitBreaker.setMaxConcurrentCalls(Math.max(concurrency, 50));
+            route.setConnectionPolicy(connectionPolicy);
+            route.setCircuitBreaker(circuitBreaker);
+        }
+        dynamicRoutesManager.addSoapRoute(route);
+    }
+
+    private LoadResult run(int total) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(proxyUrl.toString()))
+            .header("Content-Type", "text/xml; charset=UTF-8")
+            .header("SOAPAction", "\"\"")
+            .timeout(Duration.ofSeconds(30))
+            .POST(HttpRequest.BodyPublishers.ofString(REQUEST))
+            .build();
+
+        long[] latencies = new long[total];
+        AtomicInteger next = new AtomicInteger();
+        AtomicLong errors = new AtomicLong();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(workers.submit(() -> {
+                    int index;
+                    while ((index = next.getAndIncrement()) < total) {
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[index] = System.nanoTime() - sent;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        return new LoadResult(latencies, errors.get(), System.nanoTime() - start);
+    }
+
+    private final class LoadResult {
+        private final long[] latencies;
+        private final long errors;
+        private final long elapsedNanos;
+
+        private LoadResult(long[] latencies, long errors, long elapsedNanos) {
+            this.latencies = latencies.clone();
+            Arrays.sort(this.latencies);
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        private double percentileMillis(double percentile) {
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.max(index, 0)] / 1_000_000.0;
+        }
+
+        private void report(String label) {
+            log.info(String.format("[%s] concurrency=%d requests=%d errors=%d throughput=%.1f req/s "
+                    + "p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms backendRequests=%d",
+                label, concurrency, latencies.length, errors,
+                latencies.length / (elapsedNanos / 1_000_000_000.0),
+                percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(100),
+                backend.getRequests()));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.acme.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * Local SOAP server that stands in for a legacy backend.
+ * It reads the target namespace of a WSDL and answers every request with an empty {Operation}Response element
+ * in that namespace, after an optional fixed delay that simulates the backend latency.
+ */
+public class StubSoapBackend implements AutoCloseable {
+
+    private static final Pattern BODY_ELEMENT =
+        Pattern.compile("<(?:\\w+:)?Body[^>]*>\\s*<(?:(\\w+):)?(\\w+)", Pattern.DOTALL);
+
+    private final String targetNamespace;
+    private final long delayMillis;
+    private final AtomicLong requests = new AtomicLong();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public StubSoapBackend(Path wsdl, long delayMillis) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        this.targetNamespace = factory.newDocumentBuilder().parse(wsdl.toFile())
+            .getDocumentElement().getAttribute("targetNamespace");
+        this.delayMillis = delayMillis;
+    }
+
+    /**
+     * Starts the server on a free local port.
+     * @param path The context path of the SOAP endpoint.
+     * @param threads The number of threads that answer requests.
+     * @return The port the server listens on.
+     * @throws IOException If the server cannot be started.
+     */
+    public int start(String path, int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext(path, this::handle);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String request;
+        try (InputStream body = exchange.getRequestBody()) {
+            request = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        Matcher matcher = BODY_ELEMENT.matcher(request);
+        String operation = matcher.find() ? matcher.group(2) : "Operation";
+        String response = "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+            + "<soapenv:Body><tns:" + operation + "Response xmlns:tns=\"" + targetNamespace + "\"/>"
+            + "</soapenv:Body></soapenv:Envelope>";
+
+        if (delayMillis > 0) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/xml; charset=UTF-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+}
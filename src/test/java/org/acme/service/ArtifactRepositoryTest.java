@@ -0,0 +1,76 @@
+package org.acme.service;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import org.acme.DTOs.ArtifactVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ArtifactRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    private final ArtifactRepository artifactRepository = new ArtifactRepository();
+
+    @BeforeEach
+    void setUp() {
+        artifactRepository.storeType = "local";
+        artifactRepository.directory = directory.toString();
+    }
+
+    @Test
+    void testIdenticalUploadsKeepTheSameVersion() throws Exception {
+        ArtifactVersion first = artifactRepository.put(ArtifactRepository.XSLT, "recaudadora", bytes("<a/>"));
+        ArtifactVersion again = artifactRepository.put(ArtifactRepository.XSLT, "recaudadora", bytes("<a/>"));
+        ArtifactVersion changed = artifactRepository.put(ArtifactRepository.XSLT, "recaudadora", bytes("<b/>"));
+
+        assertEquals(1, first.getVersion());
+        assertEquals(first, again);
+        assertEquals(2, changed.getVersion());
+        assertEquals(2, artifactRepository.history(ArtifactRepository.XSLT, "recaudadora").size());
+        assertEquals(changed, artifactRepository.current(ArtifactRepository.XSLT, "recaudadora").orElseThrow());
+    }
+
+    @Test
+    void testSameContentIsStoredOnceForSeveralServices() throws Exception {
+        ArtifactVersion first = artifactRepository.put(ArtifactRepository.WSDL, "serviceA", bytes("<definitions/>"));
+        ArtifactVersion second = artifactRepository.put(ArtifactRepository.WSDL, "serviceB", bytes("<definitions/>"));
+
+        assertEquals(first.getHash(), second.getHash());
+        assertEquals(artifactRepository.localFile(first), artifactRepository.localFile(second));
+        ByteBuffer content = artifactRepository.read(second);
+        byte[] read = new byte[content.remaining()];
+        content.get(read);
+        assertEquals("<definitions/>", new String(read, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testStreamedUploadChecksItsHash() throws Exception {
+        ArtifactVersion stored = artifactRepository.put(ArtifactRepository.XSLT, "recaudadora",
+            new ByteArrayInputStream(bytes("<a/>")), null);
+        ArtifactVersion checked = artifactRepository.put(ArtifactRepository.XSLT, "recaudadora",
+            new ByteArrayInputStream(bytes("<a/>")), stored.getHash().toUpperCase());
+
+        assertEquals(stored, checked);
+        assertThrows(IllegalArgumentException.class, () -> artifactRepository.put(ArtifactRepository.XSLT,
+            "recaudadora", new ByteArrayInputStream(bytes("<b/>")), stored.getHash()));
+        assertEquals(1, artifactRepository.history(ArtifactRepository.XSLT, "recaudadora").size());
+    }
+
+    @Test
+    void testInvalidServiceNameIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+            () -> artifactRepository.put(ArtifactRepository.WSDL, "../escape", bytes("<definitions/>")));
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,156 @@
+package org.acme.service;
+
+import org.acme.DTOs.CircuitBreakerPolicy;
+import org.acme.DTOs.CircuitBreakerStats;
+import org.acme.configurations.BackendCircuitBreakers;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BackendCircuitBreakersTest {
+
+    private static final long OPEN_STATE_DURATION = 200;
+
+    private final CamelContext camelContext = new DefaultCamelContext();
+    private final BackendCircuitBreakers circuitBreakers = new BackendCircuitBreakers();
+    private final BackendCircuitBreakers.CircuitBreaker breaker = circuitBreakers.register("servicio",
+        new CircuitBreakerPolicy(true, 50, 10000L, 100, 4, 4, OPEN_STATE_DURATION, 2, 10));
+
+    @AfterEach
+    void closeContext() {
+        camelContext.close();
+    }
+
+    @Test
+    void testCircuitOpensWhenTheFailureRateIsReached() {
+        call(false);
+        call(false);
+        call(true);
+        assertEquals("CLOSED", state());
+
+        call(true);
+
+        assertEquals("OPEN", state());
+        Exchange rejected = new DefaultExchange(camelContext);
+        assertFalse(breaker.tryAcquire(rejected));
+        breaker.reject(rejected);
+        assertEquals(500, rejected.getMessage().getHeader(Exchange.HTTP_RESPONSE_CODE));
+        assertTrue(SoapRequestDigest.isFault(rejected.getMessage().getBody(String.class)));
+    }
+
+    @Test
+    void testCircuitClosesWhenTheProbesSucceed() throws Exception {
+        openCircuit();
+
+        Thread.sleep(OPEN_STATE_DURATION + 50);
+        call(false);
+        assertEquals("HALF_OPEN", state());
+        call(false);
+
+        assertEquals("CLOSED", state());
+        assertEquals(0, stats().getBufferedCalls());
+    }
+
+    @Test
+    void testCircuitOpensAgainWhenAProbeFails() throws Exception {
+        openCircuit();
+
+        Thread.sleep(OPEN_STATE_DURATION + 50);
+        call(true);
+
+        assertEquals("OPEN", state());
+        assertFalse(breaker.tryAcquire(new DefaultExchange(camelContext)));
+    }
+
+    @Test
+    void testServerErrorsAndFaultsCountAsFailures() {
+        Exchange serverError = new DefaultExchange(camelContext);
+        assertTrue(breaker.tryAcquire(serverError));
+        serverError.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, 503);
+        breaker.inspect(serverError);
+        complete(serverError);
+
+        Exchange fault = new DefaultExchange(camelContext);
+        assertTrue(breaker.tryAcquire(fault));
+        fault.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, 200);
+        fault.getMessage().setBody("<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+            + "<soap:Body><soap:Fault><faultcode>soap:Server</faultcode></soap:Fault></soap:Body></soap:Envelope>");
+        breaker.inspect(fault);
+        complete(fault);
+
+        call(false);
+        call(false);
+
+        assertEquals(50.0, stats().getFailureRate());
+        assertEquals("OPEN", state());
+    }
+
+    @Test
+    void testPermitIsReleasedOnceWhenTheBackendAnswers() {
+        Exchange exchange = new DefaultExchange(camelContext);
+        assertTrue(breaker.tryAcquire(exchange));
+        assertEquals(1, stats().getConcurrentCalls());
+
+        exchange.getMessage().setBody("<respuesta/>");
+        breaker.inspect(exchange);
+
+        // The rest of the exchange no longer holds the permit, and its completion does not record the call again
+        assertEquals(0, stats().getConcurrentCalls());
+        assertEquals(1, stats().getBufferedCalls());
+        complete(exchange);
+        assertEquals(0, stats().getConcurrentCalls());
+        assertEquals(1, stats().getBufferedCalls());
+    }
+
+    @Test
+    void testPermitIsReleasedWhenTheBackendStepFails() {
+        Exchange exchange = new DefaultExchange(camelContext);
+        assertTrue(breaker.tryAcquire(exchange));
+        exchange.setException(new IllegalStateException("backend caído"));
+
+        complete(exchange);
+
+        assertEquals(0, stats().getConcurrentCalls());
+        assertEquals(100.0, stats().getFailureRate());
+    }
+
+    private void openCircuit() {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        assertEquals("OPEN", state());
+    }
+
+    private void call(boolean failed) {
+        Exchange exchange = new DefaultExchange(camelContext);
+        assertTrue(breaker.tryAcquire(exchange));
+        exchange.getMessage().setBody("<respuesta/>");
+        if (failed) {
+            exchange.setException(new IllegalStateException("backend caído"));
+        }
+        breaker.inspect(exchange);
+        complete(exchange);
+    }
+
+    private static void complete(Exchange exchange) {
+        exchange.getExchangeExtension().handoverCompletions().forEach(synchronization -> synchronization.onComplete(exchange));
+    }
+
+    private String state() {
+        return stats().getState();
+    }
+
+    private CircuitBreakerStats stats() {
+        return circuitBreakers.getStats().stream()
+            .filter(stats -> stats.getNameService().equals("servicio"))
+            .findFirst()
+            .orElseThrow();
+    }
+}
@@ -0,0 +1,98 @@
+package org.acme.service;
+
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Alternative;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.bson.Document;
+
+/**
+ * Stand-in for ServiceRepository that keeps the service definitions in memory, so tests run without Mongo.
+ */
+@Alternative
+@ApplicationScoped
+public class InMemoryServiceRepository extends ServiceRepository {
+
+    private final Map<String, Document> services = new ConcurrentHashMap<>();
+
+    @Override
+    void onStart(@Observes StartupEvent ev) {
+    }
+
+    @Override
+    public Optional<Document> findByName(String nameService) {
+        return Optional.ofNullable(services.get(nameService));
+    }
+
+    @Override
+    public Map<String, Document> findByNames(Collection<String> nameServices) {
+        Map<String, Document> found = new LinkedHashMap<>();
+        nameServices.forEach(nameService -> findByName(nameService).ifPresent(document -> found.put(nameService, document)));
+        return found;
+    }
+
+    @Override
+    public void insert(Document document) {
+        services.put(document.getString("nameService"), document);
+    }
+
+    @Override
+    public void upsert(String nameService, Document fields) {
+        services.merge(nameService, new Document(fields), (current, update) -> {
+            Document merged = new Document(current);
+            merged.putAll(update);
+            return merged;
+        });
+    }
+
+    @Override
+    public void upsertAll(Map<String, Document> fieldsByService) {
+        fieldsByService.forEach(this::upsert);
+    }
+
+    @Override
+    public void delete(String nameService) {
+        services.remove(nameService);
+    }
+
+    @Override
+    public void deleteAll(Collection<String> nameServices) {
+        nameServices.forEach(services::remove);
+    }
+
+    @Override
+    public Uni<Optional<Document>> findByNameReactive(String nameService) {
+        return Uni.createFrom().item(findByName(nameService));
+    }
+
+    @Override
+    public Multi<Document> streamAll() {
+        return Multi.createFrom().iterable(List.copyOf(services.values()));
+    }
+
+    @Override
+    public Uni<Void> insertReactive(Document document) {
+        insert(document);
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> upsertReactive(String nameService, Document fields) {
+        upsert(nameService, fields);
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> deleteReactive(String nameService) {
+        delete(nameService);
+        return Uni.createFrom().voidItem();
+    }
+}
@@ -0,0 +1,115 @@
+package org.acme.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.camel.AsyncProcessor;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestCoalescerTest {
+
+    private static final String REQUEST =
+        "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>"
+            + "<consulta><referencia>123</referencia></consulta></soap:Body></soap:Envelope>";
+    private static final String FAULT =
+        "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body><soap:Fault>"
+            + "<faultcode>soap:Server</faultcode><faultstring>error</faultstring></soap:Fault></soap:Body></soap:Envelope>";
+
+    private final CamelContext camelContext = new DefaultCamelContext();
+    private final RequestCoalescer requestCoalescer = new RequestCoalescer();
+    private final AsyncProcessor joiner = requestCoalescer.joiner("servicio", true);
+
+    @AfterEach
+    void closeContext() {
+        camelContext.close();
+    }
+
+    @Test
+    void testFollowersGetACopyOfTheResponseOfTheLeader() throws Exception {
+        Exchange leader = request();
+        assertTrue(joiner.process(leader, doneSync -> { }));
+        assertFalse(requestCoalescer.isCoalesced(leader));
+
+        CountDownLatch resumed = new CountDownLatch(3);
+        List<Exchange> followers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Exchange follower = request();
+            followers.add(follower);
+            assertFalse(joiner.process(follower, doneSync -> resumed.countDown()));
+        }
+
+        leader.getMessage().setBody("<respuesta/>");
+        leader.getMessage().setHeader(Exchange.CONTENT_TYPE, "text/xml");
+        requestCoalescer.complete(leader);
+
+        assertTrue(resumed.await(5, TimeUnit.SECONDS));
+        for (Exchange follower : followers) {
+            assertTrue(requestCoalescer.isCoalesced(follower));
+            assertEquals("<respuesta/>", follower.getMessage().getBody(String.class));
+            assertEquals("text/xml", follower.getMessage().getHeader(Exchange.CONTENT_TYPE));
+        }
+        // Each follower owns its copy of the body
+        followers.get(0).getMessage().getBody(byte[].class)[0] = 'x';
+        assertEquals("<respuesta/>", followers.get(1).getMessage().getBody(String.class));
+        assertEquals(3, requestCoalescer.getStats().get(0).getCoalesced());
+    }
+
+    @Test
+    void testFollowersGetTheFaultAndStatusOfTheLeader() throws Exception {
+        Exchange leader = request();
+        joiner.process(leader, doneSync -> { });
+        CountDownLatch resumed = new CountDownLatch(1);
+        Exchange follower = request();
+        joiner.process(follower, doneSync -> resumed.countDown());
+
+        leader.getMessage().setBody(FAULT.getBytes(StandardCharsets.UTF_8));
+        leader.getMessage().setHeader(Exchange.HTTP_RESPONSE_CODE, 500);
+        requestCoalescer.complete(leader);
+
+        assertTrue(resumed.await(5, TimeUnit.SECONDS));
+        assertEquals(500, follower.getMessage().getHeader(Exchange.HTTP_RESPONSE_CODE));
+        assertEquals(FAULT, follower.getMessage().getBody(String.class));
+    }
+
+    @Test
+    void testFollowersFailWhenTheLeaderFails() throws Exception {
+        Exchange leader = request();
+        joiner.process(leader, doneSync -> { });
+        CountDownLatch resumed = new CountDownLatch(1);
+        Exchange follower = request();
+        joiner.process(follower, doneSync -> resumed.countDown());
+
+        leader.setException(new IllegalStateException("backend caído"));
+        leader.getExchangeExtension().handoverCompletions().forEach(synchronization -> synchronization.onFailure(leader));
+
+        assertTrue(resumed.await(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, follower.getException());
+        assertFalse(requestCoalescer.isCoalesced(follower));
+
+        // Once the leader is gone the next identical request leads its own call
+        Exchange next = request();
+        assertTrue(joiner.process(next, doneSync -> { }));
+        assertNull(next.getException());
+        assertFalse(requestCoalescer.isCoalesced(next));
+    }
+
+    private Exchange request() {
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getMessage().setBody(REQUEST);
+        exchange.getMessage().setHeader("SOAPAction", "consulta");
+        return exchange;
+    }
+}
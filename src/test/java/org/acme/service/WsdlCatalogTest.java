@@ -0,0 +1,45 @@
+package org.acme.service;
+
+import java.nio.file.Path;
+import org.acme.DTOs.WsdlDefinition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WsdlCatalogTest {
+
+    @TempDir
+    Path directory;
+
+    private final WsdlCatalog wsdlCatalog = new WsdlCatalog();
+
+    @BeforeEach
+    void setUp() {
+        // An empty store, so the bundled WSDL files are used
+        ArtifactRepository artifactRepository = new ArtifactRepository();
+        artifactRepository.storeType = "local";
+        artifactRepository.directory = directory.toString();
+        wsdlCatalog.artifactRepository = artifactRepository;
+    }
+
+    @Test
+    void testIndexesRecaudadoraWsdl() {
+        WsdlDefinition definition = wsdlCatalog.get("recaudadora").orElseThrow();
+
+        assertEquals("bbvaMaquinaRecaudadora", definition.getServiceName());
+        assertEquals("OperacionesRecaudos", definition.getPortType());
+        assertEquals("http://www.example.org/", definition.getSoap11Address());
+        assertNull(definition.getSoap12Address());
+        assertEquals("document", definition.getBindingStyle());
+        assertEquals("1.1", definition.getSoapVersion());
+    }
+
+    @Test
+    void testUnknownServiceIsEmpty() {
+        assertTrue(wsdlCatalog.get("doesNotExist").isEmpty());
+    }
+}
@@ -0,0 +1,97 @@
+package org.acme.service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.xml.transform.Templates;
+import org.acme.DTOs.XsltWarmupStats;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class XsltTemplateCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private final XsltTemplateCache xsltTemplateCache = new XsltTemplateCache();
+
+    @BeforeEach
+    void setUp() {
+        ArtifactRepository artifactRepository = new ArtifactRepository();
+        artifactRepository.storeType = "local";
+        artifactRepository.directory = directory.resolve("artifacts").toString();
+        xsltTemplateCache.artifactRepository = artifactRepository;
+    }
+
+    @Test
+    void testPrecompileWarmsUpWithTheSamples() throws Exception {
+        xsltTemplateCache.warmupIterations = 5;
+
+        Templates templates = xsltTemplateCache.precompile("recaudadora",
+            Path.of("src/main/resources/xslt/recaudadora.xslt"), "hash");
+
+        assertNotNull(templates);
+        XsltWarmupStats stats = xsltTemplateCache.getWarmups().get(0);
+        assertEquals("recaudadora", stats.getNameService());
+        assertEquals(1, stats.getSamples());
+        assertEquals(5, stats.getIterations());
+    }
+
+    @Test
+    void testBrokenStylesheetIsRejectedWithItsLine() throws Exception {
+        Path broken = directory.resolve("broken.xslt");
+        Files.writeString(broken, """
+            <xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                <xsl:template match="/">
+                    <xsl:value-of select="count(("/>
+                </xsl:template>
+            </xsl:stylesheet>
+            """);
+
+        XsltValidationException e = assertThrows(XsltValidationException.class,
+            () -> xsltTemplateCache.precompile("broken", broken, "hash"));
+
+        assertFalse(e.getDiagnostics().isEmpty());
+        assertTrue(e.getDiagnostics().stream().anyMatch(diagnostic -> diagnostic.contains("line 3") || diagnostic.contains("línea 3")));
+        assertTrue(xsltTemplateCache.getWarmups().isEmpty());
+    }
+
+    @Test
+    void testJavaExtensionFunctionsAreRejected() throws Exception {
+        Path extension = directory.resolve("extension.xslt");
+        Files.writeString(extension, """
+            <xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform"
+                xmlns:runtime="http://xml.apache.org/xalan/java/java.lang.Runtime">
+                <xsl:template match="/">
+                    <xsl:value-of select="runtime:getRuntime()"/>
+                </xsl:template>
+            </xsl:stylesheet>
+            """);
+
+        assertThrows(XsltValidationException.class, () -> xsltTemplateCache.precompile("extension", extension, "hash"));
+    }
+
+    @Test
+    void testRequestsWithExternalEntitiesAreNotTransformed() throws Exception {
+        Path secret = Files.writeString(directory.resolve("secret.txt"), "secreto");
+        try (CamelContext camelContext = new DefaultCamelContext()) {
+            Exchange exchange = new DefaultExchange(camelContext);
+            exchange.getIn().setBody("<?xml version=\"1.0\"?>"
+                + "<!DOCTYPE consulta [<!ENTITY secreto SYSTEM \"" + secret.toUri() + "\">]>"
+                + "<consulta>&secreto;</consulta>");
+
+            assertThrows(Exception.class, () -> xsltTemplateCache.transform("recaudadora", exchange));
+            assertTrue(exchange.getIn().getBody(String.class).contains("&secreto;"));
+        }
+    }
+}